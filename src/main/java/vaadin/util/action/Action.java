@@ -18,11 +18,19 @@ import lombok.Value;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Action {
 
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
   String name;
   ComponentEventListener<ClickEvent<MenuItem>> listener;
   @Builder.Default
   ActionEnabled actionEnabled = () -> true;
   @Builder.Default
   boolean clearSelectionsAndPushAfterAction = true;
+  // async actions run the batch listener over the selection as a task instead of the listener in the click event
+  @Builder.Default
+  boolean async = false;
+  @Builder.Default
+  int batchSize = DEFAULT_BATCH_SIZE;
+  ActionBatchListener<?> batchListener;
 
 }
@@ -0,0 +1,9 @@
+package vaadin.util.action;
+
+import java.util.List;
+
+public interface ActionBatchListener<ITEM> {
+
+  void onBatch(List<ITEM> batch) throws Exception;
+
+}
@@ -0,0 +1,48 @@
+package vaadin.util.filter;
+
+public class FacetCounts {
+
+  private final FacetIndex _facetIndex;
+  private final int[][] _counts;
+  private final int _total;
+
+  FacetCounts(FacetIndex facetIndex, int[][] counts, int total) {
+    _facetIndex = facetIndex;
+    _counts = counts;
+    _total = total;
+  }
+
+  public FacetIndex getFacetIndex() {
+    return _facetIndex;
+  }
+
+  public long getGeneration() {
+    return _facetIndex.getGeneration();
+  }
+
+  public int getTotal() {
+    return _total;
+  }
+
+  public int getCount(String filterName, String value) {
+    int ordinal = _facetIndex.getOrdinal(filterName);
+    if (ordinal < 0) {
+      return 0;
+    }
+    int code = _facetIndex.getFacet(filterName)
+                          .getCode(value);
+    if (code < 0) {
+      return 0;
+    }
+    return _counts[ordinal][code];
+  }
+
+  int[][] copyCounts() {
+    int[][] counts = new int[_counts.length][];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = _counts[i].clone();
+    }
+    return counts;
+  }
+
+}
@@ -0,0 +1,307 @@
+package vaadin.util.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import vaadin.util.push.FilteredIndex;
+import vaadin.util.push.ItemSnapshot;
+import vaadin.util.push.LambdaAccessor;
+
+public class FacetIndex {
+
+  public static final int NO_VALUE = -1;
+  public static final int MULTI_VALUE = -2;
+
+  private static final int PARALLEL_THRESHOLD = Integer.getInteger(FilteredIndex.PARALLEL_THRESHOLD_PROPERTY,
+      50_000);
+  private static final int CHUNK_SIZE = Math.max(64,
+      Integer.getInteger(FilteredIndex.CHUNK_SIZE_PROPERTY, 8192) / 64 * 64);
+
+  private final long _generation;
+  private final int _size;
+  private final Map<String, Facet> _facets;
+  private final ImmutableList<String> _names;
+  private final ImmutableList<Facet> _facetList;
+
+  public static class Facet {
+
+    private final Map<String, Integer> _dictionary = new HashMap<>();
+    private final List<String> _values = new ArrayList<>();
+    private final List<BitSet> _bitmaps = new ArrayList<>();
+    private final Map<Integer, int[]> _multiCodes = new HashMap<>();
+    private final int[] _codes;
+
+    private Facet(int size) {
+      _codes = new int[size];
+      Arrays.fill(_codes, NO_VALUE);
+    }
+
+    private Facet(Facet facet, int size) {
+      _dictionary.putAll(facet._dictionary);
+      _values.addAll(facet._values);
+      for (BitSet bitmap : facet._bitmaps) {
+        _bitmaps.add((BitSet) bitmap.clone());
+      }
+      _multiCodes.putAll(facet._multiCodes);
+      _codes = Arrays.copyOf(facet._codes, size);
+      Arrays.fill(_codes, facet._codes.length, size, NO_VALUE);
+    }
+
+    public int getCode(String value) {
+      Integer code = _dictionary.get(value);
+      return code == null ? NO_VALUE : code;
+    }
+
+    public String getValue(int code) {
+      return _values.get(code);
+    }
+
+    public int getCardinality() {
+      return _values.size();
+    }
+
+    public int getCode(int row) {
+      return _codes[row];
+    }
+
+    public int[] getCodes(int row) {
+      int code = _codes[row];
+      if (code == MULTI_VALUE) {
+        return _multiCodes.get(row);
+      } else if (code == NO_VALUE) {
+        return new int[] {};
+      }
+      return new int[] { code };
+    }
+
+    public BitSet getBitmap(int code) {
+      return _bitmaps.get(code);
+    }
+
+    private void add(int row, Object object) {
+      if (object instanceof Collection) {
+        int[] codes = ((Collection<?>) object).stream()
+                                              .filter(o -> o != null)
+                                              .mapToInt(o -> encode(row, o.toString()))
+                                              .distinct()
+                                              .toArray();
+        if (codes.length == 1) {
+          _codes[row] = codes[0];
+        } else if (codes.length > 1) {
+          _codes[row] = MULTI_VALUE;
+          _multiCodes.put(row, codes);
+        }
+      } else if (object != null) {
+        _codes[row] = encode(row, object.toString());
+      }
+    }
+
+    private void clear(int row) {
+      for (int code : getCodes(row)) {
+        _bitmaps.get(code)
+                .clear(row);
+      }
+      _codes[row] = NO_VALUE;
+      _multiCodes.remove(row);
+    }
+
+    private int encode(int row, String value) {
+      Integer code = _dictionary.get(value);
+      if (code == null) {
+        code = _values.size();
+        _dictionary.put(value, code);
+        _values.add(value);
+        _bitmaps.add(new BitSet());
+      }
+      _bitmaps.get(code)
+              .set(row);
+      return code;
+    }
+  }
+
+  private FacetIndex(long generation, int size, Map<String, Facet> facets) {
+    _generation = generation;
+    _size = size;
+    _facets = facets;
+    _names = ImmutableList.copyOf(facets.keySet());
+    _facetList = ImmutableList.copyOf(facets.values());
+  }
+
+  public static <ITEM> FacetIndex build(ItemSnapshot<ITEM> snapshot,
+      Map<String, LambdaAccessor<ITEM, ?>> lambdaAccessorMap) {
+    int size = snapshot.size();
+    ImmutableMap.Builder<String, Facet> builder = ImmutableMap.builder();
+    for (Entry<String, LambdaAccessor<ITEM, ?>> entry : lambdaAccessorMap.entrySet()) {
+      LambdaAccessor<ITEM, ?> lambdaAccessor = entry.getValue();
+      Facet facet = new Facet(size);
+      for (int row = 0; row < size; row++) {
+        facet.add(row, lambdaAccessor.getValue(snapshot.get(row)));
+      }
+      builder.put(entry.getKey(), facet);
+    }
+    return new FacetIndex(snapshot.getGeneration(), size, builder.build());
+  }
+
+  // carries the previous index over to a snapshot whose rows kept their positions, only the changed rows and the
+  // appended rows are read
+  public static <ITEM> FacetIndex update(FacetIndex previous, ItemSnapshot<ITEM> snapshot,
+      Map<String, LambdaAccessor<ITEM, ?>> lambdaAccessorMap, int[] changedRows) {
+    int size = snapshot.size();
+    ImmutableMap.Builder<String, Facet> builder = ImmutableMap.builder();
+    for (Entry<String, LambdaAccessor<ITEM, ?>> entry : lambdaAccessorMap.entrySet()) {
+      LambdaAccessor<ITEM, ?> lambdaAccessor = entry.getValue();
+      Facet facet = new Facet(previous._facets.get(entry.getKey()), size);
+      for (int row : changedRows) {
+        facet.clear(row);
+        facet.add(row, lambdaAccessor.getValue(snapshot.get(row)));
+      }
+      for (int row = previous._size; row < size; row++) {
+        facet.add(row, lambdaAccessor.getValue(snapshot.get(row)));
+      }
+      builder.put(entry.getKey(), facet);
+    }
+    return new FacetIndex(snapshot.getGeneration(), size, builder.build());
+  }
+
+  public long getGeneration() {
+    return _generation;
+  }
+
+  public int size() {
+    return _size;
+  }
+
+  public Facet getFacet(String name) {
+    return _facets.get(name);
+  }
+
+  int getOrdinal(String name) {
+    return _names.indexOf(name);
+  }
+
+  // counts every facet in one pass over the rows
+  public FacetCounts count(BitSet rows) {
+    return new FacetCounts(this, countRows(rows), rows.cardinality());
+  }
+
+  // adjusts previous counts by the rows that entered and left the filtered set
+  public FacetCounts update(FacetCounts previous, BitSet added, BitSet removed) {
+    int[][] counts = previous.copyCounts();
+    merge(counts, countRows(added), 1);
+    merge(counts, countRows(removed), -1);
+    return new FacetCounts(this, counts, previous.getTotal() + added.cardinality() - removed.cardinality());
+  }
+
+  private int[][] countRows(BitSet rows) {
+    CountTask task = new CountTask(rows, 0, Math.min(_size, rows.length()));
+    if (rows.cardinality() >= PARALLEL_THRESHOLD) {
+      return ForkJoinPool.commonPool()
+                         .invoke(task);
+    }
+    return task.count();
+  }
+
+  private int[][] newCounts() {
+    int[][] counts = new int[_facetList.size()][];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new int[_facetList.get(i)
+                                    .getCardinality()];
+    }
+    return counts;
+  }
+
+  private static void merge(int[][] counts, int[][] delta, int sign) {
+    for (int i = 0; i < counts.length; i++) {
+      for (int code = 0; code < counts[i].length; code++) {
+        counts[i][code] += sign * delta[i][code];
+      }
+    }
+  }
+
+  private class CountTask extends RecursiveTask<int[][]> {
+
+    private static final long serialVersionUID = -2467385317384902131L;
+
+    private final BitSet _rows;
+    private final int _start;
+    private final int _end;
+
+    CountTask(BitSet rows, int start, int end) {
+      _rows = rows;
+      _start = start;
+      _end = end;
+    }
+
+    @Override
+    protected int[][] compute() {
+      if (_end - _start <= CHUNK_SIZE) {
+        return count();
+      }
+      int middle = _start + Math.max(CHUNK_SIZE, (_end - _start) / 2 / CHUNK_SIZE * CHUNK_SIZE);
+      CountTask right = new CountTask(_rows, middle, _end);
+      right.fork();
+      int[][] counts = new CountTask(_rows, _start, middle).compute();
+      merge(counts, right.join(), 1);
+      return counts;
+    }
+
+    int[][] count() {
+      int[][] counts = newCounts();
+      for (int row = _rows.nextSetBit(_start); row >= 0 && row < _end; row = _rows.nextSetBit(row + 1)) {
+        for (int i = 0; i < counts.length; i++) {
+          Facet facet = _facetList.get(i);
+          int code = facet.getCode(row);
+          if (code >= 0) {
+            counts[i][code]++;
+          } else if (code == MULTI_VALUE) {
+            for (int c : facet.getCodes(row)) {
+              counts[i][c]++;
+            }
+          }
+        }
+      }
+      return counts;
+    }
+  }
+
+  public BitSet select(Map<String, ? extends Set<String>> selections) {
+    BitSet result = null;
+    for (Entry<String, ? extends Set<String>> entry : selections.entrySet()) {
+      Facet facet = _facets.get(entry.getKey());
+      Set<String> selectedValues = entry.getValue();
+      if (facet == null || selectedValues.isEmpty()) {
+        continue;
+      }
+      BitSet bitSet = new BitSet(_size);
+      for (String value : selectedValues) {
+        int code = facet.getCode(value);
+        if (code != NO_VALUE) {
+          bitSet.or(facet.getBitmap(code));
+        }
+      }
+      if (result == null) {
+        result = bitSet;
+      } else {
+        result.and(bitSet);
+      }
+    }
+    if (result == null) {
+      result = new BitSet(_size);
+      result.set(0, _size);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,15 @@
+package vaadin.util.filter;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import vaadin.util.push.LambdaAccessor;
+
+@Value
+@AllArgsConstructor(staticName = "of")
+public class FilterAccessor<ITEM> {
+
+  String name;
+  FilterType type;
+  LambdaAccessor<ITEM, ?> lambdaAccessor;
+
+}
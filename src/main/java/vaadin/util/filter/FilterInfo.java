@@ -1,28 +1,38 @@
 package vaadin.util.filter;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
+import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
+import com.google.common.collect.Multiset;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Floats;
+import com.google.common.primitives.Longs;
 import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.function.SerializablePredicate;
 
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import vaadin.util.push.FilteredIndex;
+import vaadin.util.push.ItemDelta;
+import vaadin.util.push.ItemDiff;
+import vaadin.util.push.ItemManager;
+import vaadin.util.push.ItemMetadataLoader;
+import vaadin.util.push.ItemSnapshot;
 import vaadin.util.push.LambdaAccessor;
 import vaadin.util.push.PushComponent;
 
@@ -30,39 +40,73 @@ import vaadin.util.push.PushComponent;
 public class FilterInfo<ITEM> {
 
   private final Map<String, LambdaAccessor<ITEM, ?>> _lambdaAccessorMap;
-  private final Map<String, Set<String>> _uniqueValueMap = new ConcurrentHashMap<>();
+  private final Map<String, LambdaAccessor<ITEM, ?>> _rangeAccessorMap;
+  private final Map<String, Multiset<String>> _valueCounts;
   private final Set<PushComponent> _pushCache;
+  private final Map<FilteredIndex<ITEM>, FacetCounts> _facetCounts = new MapMaker().weakKeys()
+                                                                                  .makeMap();
+  private volatile FacetIndex _facetIndex;
+  // guarded by this, the deltas the facet or range index has not caught up with yet
+  private final List<ItemDelta<ITEM>> _indexDeltas = new ArrayList<>();
+  private volatile RangeIndex _rangeIndex;
+  private volatile LastCounts _lastCounts;
+  private ImmutableList<ITEM> _items = ImmutableList.of();
+
+  private static class LastCounts {
+    final BitSet rows;
+    final FacetCounts facetCounts;
+
+    LastCounts(BitSet rows, FacetCounts facetCounts) {
+      this.rows = rows;
+      this.facetCounts = facetCounts;
+    }
+  }
 
   public FilterInfo(Class<ITEM> clazz) {
     _pushCache = Collections.newSetFromMap(new MapMaker().weakKeys()
                                                          .weakValues()
                                                          .makeMap());
     Map<String, LambdaAccessor<ITEM, ?>> lambdaAccessorMap = new HashMap<>();
-    Field[] fields = clazz.getDeclaredFields();
-    for (Field field : fields) {
-      Filterable filterable = field.getAnnotation(Filterable.class);
-      if (filterable != null) {
-        String getterMethod = findGetterMethod(field);
-        Method method = findMethod(clazz, getterMethod);
-        if (method == null) {
-          log.error("Getter method for field {} not found", field.getName());
-        } else {
-          addLambdaAccessor(clazz, lambdaAccessorMap, filterable, method);
-        }
-      }
-    }
-    for (Method method : clazz.getDeclaredMethods()) {
-      Filterable filterable = method.getAnnotation(Filterable.class);
-      if (filterable != null) {
-        addLambdaAccessor(clazz, lambdaAccessorMap, filterable, method);
-      }
+    Map<String, LambdaAccessor<ITEM, ?>> rangeAccessorMap = new HashMap<>();
+    for (FilterAccessor<ITEM> filterAccessor : ItemMetadataLoader.get(clazz)
+                                                                 .getFilterables()) {
+      addLambdaAccessor(lambdaAccessorMap, rangeAccessorMap, filterAccessor);
     }
     _lambdaAccessorMap = ImmutableMap.copyOf(lambdaAccessorMap);
+    _rangeAccessorMap = ImmutableMap.copyOf(rangeAccessorMap);
+    ImmutableMap.Builder<String, Multiset<String>> valueCounts = ImmutableMap.builder();
+    for (String name : _lambdaAccessorMap.keySet()) {
+      valueCounts.put(name, ConcurrentHashMultiset.create());
+    }
+    _valueCounts = valueCounts.build();
   }
 
-  private void addLambdaAccessor(Class<ITEM> clazz, Map<String, LambdaAccessor<ITEM, ?>> lambdaAccessorMap,
-      Filterable filterable, Method method) {
-    lambdaAccessorMap.put(filterable.value(), new LambdaAccessor<>(clazz, method.getName(), method.getReturnType()));
+  private void addLambdaAccessor(Map<String, LambdaAccessor<ITEM, ?>> lambdaAccessorMap,
+      Map<String, LambdaAccessor<ITEM, ?>> rangeAccessorMap, FilterAccessor<ITEM> filterAccessor) {
+    LambdaAccessor<ITEM, ?> lambdaAccessor = filterAccessor.getLambdaAccessor();
+    if (filterAccessor.getType() == FilterType.VALUES) {
+      lambdaAccessorMap.put(filterAccessor.getName(), lambdaAccessor);
+    } else if (RangeIndex.isRangeType(lambdaAccessor.getValueType())) {
+      rangeAccessorMap.put(filterAccessor.getName(), lambdaAccessor);
+    } else {
+      log.error("Range filter {} needs a numeric or date value, not {}", filterAccessor.getName(),
+          lambdaAccessor.getValueType());
+    }
+  }
+
+  public List<RangeFilter> getRangeFilters() {
+    List<String> filterNames = new ArrayList<>(_rangeAccessorMap.keySet());
+    Collections.sort(filterNames);
+    Builder<RangeFilter> builder = ImmutableList.builder();
+    for (String filterName : filterNames) {
+      Class<?> valueType = _rangeAccessorMap.get(filterName)
+                                            .getValueType();
+      builder.add(RangeFilter.builder()
+                             .name(filterName)
+                             .date(Date.class.isAssignableFrom(valueType))
+                             .build());
+    }
+    return builder.build();
   }
 
   public List<Filter<ITEM>> getFilters(PushComponent... pushComponents) {
@@ -90,36 +134,252 @@ public class FilterInfo<ITEM> {
                           }
                         })
                         .options(() -> getOptions(filterName))
-                        .predicate(t -> {
-                          if (selectedItems.isEmpty()) {
-                            return true;
-                          } else if (t == null) {
-                            return false;
-                          } else {
-                            Object value = accessor.getValue(t);
-                            if (value instanceof Collection) {
-                              for (Object o : (Collection<?>) value) {
-                                if (selectedItems.contains(o)) {
-                                  return true;
-                                }
-                              }
-                              return false;
-                            } else {
-                              return selectedItems.contains(value);
-                            }
-                          }
-                        })
+                        .predicate(t -> matches(accessor, selectedItems, t))
                         .build());
     }
     return builder.build();
   }
 
+  public SerializablePredicate<ITEM> getPredicate(Map<String, ? extends Set<String>> selections) {
+    List<SerializablePredicate<ITEM>> predicates = new ArrayList<>();
+    for (Entry<String, ? extends Set<String>> entry : selections.entrySet()) {
+      LambdaAccessor<ITEM, ?> accessor = _lambdaAccessorMap.get(entry.getKey());
+      Set<String> selectedItems = entry.getValue();
+      if (accessor != null && !selectedItems.isEmpty()) {
+        SerializablePredicate<ITEM> primitivePredicate = getPrimitivePredicate(accessor, selectedItems);
+        if (primitivePredicate != null) {
+          predicates.add(primitivePredicate);
+        } else {
+          predicates.add(t -> matches(accessor, selectedItems, t));
+        }
+      }
+    }
+    return t -> {
+      for (SerializablePredicate<ITEM> predicate : predicates) {
+        if (!predicate.test(t)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  public SerializablePredicate<ITEM> getRangePredicate(Map<String, FilterRange> ranges) {
+    List<SerializablePredicate<ITEM>> predicates = new ArrayList<>();
+    for (Entry<String, FilterRange> entry : ranges.entrySet()) {
+      LambdaAccessor<ITEM, ?> accessor = _rangeAccessorMap.get(entry.getKey());
+      FilterRange range = entry.getValue();
+      if (accessor != null) {
+        predicates.add(t -> range.contains(RangeIndex.getKey(accessor, t)));
+      }
+    }
+    return t -> {
+      for (SerializablePredicate<ITEM> predicate : predicates) {
+        if (!predicate.test(t)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  // the selections are parsed once, so testing a row neither boxes nor formats its value
+  private SerializablePredicate<ITEM> getPrimitivePredicate(LambdaAccessor<ITEM, ?> accessor,
+      Set<String> selectedItems) {
+    Class<?> valueType = accessor.getValueType();
+    if (accessor.isIntegral() && valueType != Character.TYPE) {
+      long[] values = selectedItems.stream()
+                                   .map(Longs::tryParse)
+                                   .filter(value -> value != null)
+                                   .mapToLong(Long::longValue)
+                                   .sorted()
+                                   .toArray();
+      return t -> t != null && Arrays.binarySearch(values, accessor.getLong(t)) >= 0;
+    } else if (accessor.isFloatingPoint()) {
+      double[] values = selectedItems.stream()
+                                     .map(value -> valueType == Float.TYPE ? toDouble(Floats.tryParse(value))
+                                         : Doubles.tryParse(value))
+                                     .filter(value -> value != null)
+                                     .mapToDouble(Double::doubleValue)
+                                     .sorted()
+                                     .toArray();
+      return t -> t != null && Arrays.binarySearch(values, accessor.getDouble(t)) >= 0;
+    } else if (accessor.isBoolean()) {
+      boolean matchTrue = selectedItems.contains(Boolean.TRUE.toString());
+      boolean matchFalse = selectedItems.contains(Boolean.FALSE.toString());
+      return t -> t != null && (accessor.test(t) ? matchTrue : matchFalse);
+    }
+    return null;
+  }
+
+  private static Double toDouble(Float value) {
+    return value == null ? null : value.doubleValue();
+  }
+
+  private boolean matches(LambdaAccessor<ITEM, ?> accessor, Set<String> selectedItems, ITEM t) {
+    if (selectedItems.isEmpty()) {
+      return true;
+    } else if (t == null) {
+      return false;
+    } else {
+      Object value = accessor.getValue(t);
+      if (value instanceof Collection) {
+        for (Object o : (Collection<?>) value) {
+          if (o != null && selectedItems.contains(o.toString())) {
+            return true;
+          }
+        }
+        return false;
+      } else {
+        return value != null && selectedItems.contains(value.toString());
+      }
+    }
+  }
+
+  public FacetIndex getFacetIndex(ItemSnapshot<ITEM> snapshot) {
+    FacetIndex facetIndex = _facetIndex;
+    if (facetIndex != null && facetIndex.getGeneration() == snapshot.getGeneration()) {
+      return facetIndex;
+    }
+    synchronized (this) {
+      facetIndex = _facetIndex;
+      if (facetIndex == null || facetIndex.getGeneration() != snapshot.getGeneration()) {
+        FacetIndex updated = facetIndex == null ? null : updateFacetIndex(facetIndex, snapshot);
+        _facetIndex = facetIndex = updated != null ? updated : FacetIndex.build(snapshot, _lambdaAccessorMap);
+        removeIndexDeltas();
+      }
+      return facetIndex;
+    }
+  }
+
+  // null unless the deltas lead from the index to the snapshot without moving any row
+  private FacetIndex updateFacetIndex(FacetIndex facetIndex, ItemSnapshot<ITEM> snapshot) {
+    int[] changedRows = getChangedRows(facetIndex.getGeneration(), facetIndex.size(), snapshot);
+    if (changedRows == null) {
+      return null;
+    }
+    return FacetIndex.update(facetIndex, snapshot, _lambdaAccessorMap, changedRows);
+  }
+
+  private RangeIndex updateRangeIndex(RangeIndex rangeIndex, ItemSnapshot<ITEM> snapshot) {
+    int[] changedRows = getChangedRows(rangeIndex.getGeneration(), rangeIndex.size(), snapshot);
+    if (changedRows == null) {
+      return null;
+    }
+    return RangeIndex.update(rangeIndex, snapshot, _rangeAccessorMap, changedRows);
+  }
+
+  // the rows below the index size whose items changed since its generation, null when the deltas do not lead from
+  // there to the snapshot or move a row
+  private int[] getChangedRows(long indexGeneration, int size, ItemSnapshot<ITEM> snapshot) {
+    long generation = indexGeneration;
+    int added = 0;
+    Set<Object> changedKeys = new HashSet<>();
+    for (ItemDelta<ITEM> delta : _indexDeltas) {
+      if (delta.getGeneration() <= generation) {
+        continue;
+      } else if (delta.getGeneration() > snapshot.getGeneration()) {
+        break;
+      } else if (delta.getFromGeneration() != generation || !delta.isInPlace()) {
+        return null;
+      }
+      for (ITEM item : delta.getDiff()
+                            .getChanged()) {
+        changedKeys.add(snapshot.getKey(item));
+      }
+      added += delta.getDiff()
+                    .getAdded()
+                    .size();
+      generation = delta.getGeneration();
+    }
+    if (generation != snapshot.getGeneration() || size + added != snapshot.size()) {
+      return null;
+    }
+    int[] changedRows = new int[changedKeys.size()];
+    int count = 0;
+    for (Object key : changedKeys) {
+      int row = snapshot.indexOfKey(key);
+      if (row < 0) {
+        return null;
+      } else if (row < size) {
+        // rows added since the index are read anyway
+        changedRows[count++] = row;
+      }
+    }
+    return Arrays.copyOf(changedRows, count);
+  }
+
+  // guarded by this, drops the deltas both indexes are past
+  private void removeIndexDeltas() {
+    FacetIndex facetIndex = _facetIndex;
+    RangeIndex rangeIndex = _rangeIndex;
+    long generation = Long.MAX_VALUE;
+    if (facetIndex != null) {
+      generation = facetIndex.getGeneration();
+    }
+    if (rangeIndex != null) {
+      generation = Math.min(generation, rangeIndex.getGeneration());
+    }
+    long caughtUp = generation;
+    _indexDeltas.removeIf(delta -> delta.getGeneration() <= caughtUp);
+  }
+
+  public RangeIndex getRangeIndex(ItemSnapshot<ITEM> snapshot) {
+    RangeIndex rangeIndex = _rangeIndex;
+    if (rangeIndex != null && rangeIndex.getGeneration() == snapshot.getGeneration()) {
+      return rangeIndex;
+    }
+    synchronized (this) {
+      rangeIndex = _rangeIndex;
+      if (rangeIndex == null || rangeIndex.getGeneration() != snapshot.getGeneration()) {
+        RangeIndex updated = rangeIndex == null ? null : updateRangeIndex(rangeIndex, snapshot);
+        _rangeIndex = rangeIndex = updated != null ? updated : RangeIndex.build(snapshot, _rangeAccessorMap);
+        removeIndexDeltas();
+      }
+      return rangeIndex;
+    }
+  }
+
+  public FacetCounts getFacetCounts(FilteredIndex<ITEM> filteredIndex) {
+    FacetCounts facetCounts = _facetCounts.get(filteredIndex);
+    if (facetCounts != null) {
+      return facetCounts;
+    }
+    FacetIndex facetIndex = getFacetIndex(filteredIndex.getSnapshot());
+    BitSet rows = filteredIndex.getBitSet();
+    LastCounts lastCounts = _lastCounts;
+    if (lastCounts != null && lastCounts.facetCounts.getFacetIndex() == facetIndex) {
+      // a selection change usually moves only part of the filtered set
+      BitSet added = (BitSet) rows.clone();
+      added.andNot(lastCounts.rows);
+      BitSet removed = (BitSet) lastCounts.rows.clone();
+      removed.andNot(rows);
+      if (added.cardinality() + removed.cardinality() < filteredIndex.size()) {
+        facetCounts = facetIndex.update(lastCounts.facetCounts, added, removed);
+      }
+    }
+    if (facetCounts == null) {
+      facetCounts = facetIndex.count(rows);
+    }
+    _facetCounts.put(filteredIndex, facetCounts);
+    _lastCounts = new LastCounts(rows, facetCounts);
+    return facetCounts;
+  }
+
   private List<String> getOptions(String filterName) {
-    Set<String> options = _uniqueValueMap.get(filterName);
-    if (options == null) {
+    Multiset<String> counts = _valueCounts.get(filterName);
+    if (counts == null) {
       return ImmutableList.of();
     }
-    return sort(options);
+    return sort(counts.elementSet());
+  }
+
+  public int getCount(String filterName, String value) {
+    Multiset<String> counts = _valueCounts.get(filterName);
+    if (counts == null) {
+      return 0;
+    }
+    return counts.count(value);
   }
 
   private List<String> sort(Set<String> set) {
@@ -128,21 +388,41 @@ public class FilterInfo<ITEM> {
     return result;
   }
 
-  public void updatePossibleValues(Collection<ITEM> items) {
+  public synchronized void updatePossibleValues(Collection<ITEM> items) {
+    ImmutableList<ITEM> newItems = ImmutableList.copyOf(items);
+    ItemDiff<ITEM> diff = ItemDiff.diff(_items, newItems);
+    _items = newItems;
+    applyDiff(diff);
+  }
+
+  public synchronized void onItemDelta(ItemDelta<ITEM> delta) {
+    if (_indexDeltas.size() >= ItemManager.MAX_PUBLISHED_DIFFS) {
+      // a range index left this far behind the facet index is rebuilt rather than holding its deltas
+      FacetIndex facetIndex = _facetIndex;
+      long generation = facetIndex == null ? Long.MAX_VALUE : facetIndex.getGeneration();
+      _indexDeltas.removeIf(indexDelta -> indexDelta.getGeneration() <= generation);
+      if (_indexDeltas.size() >= ItemManager.MAX_PUBLISHED_DIFFS) {
+        // either index is rebuilt when it is next asked for
+        _indexDeltas.clear();
+      }
+    }
+    _indexDeltas.add(delta);
+    applyDiff(delta.getDiff());
+  }
+
+  private void applyDiff(ItemDiff<ITEM> diff) {
     boolean change = false;
     for (Entry<String, LambdaAccessor<ITEM, ?>> entry : _lambdaAccessorMap.entrySet()) {
-      String name = entry.getKey();
+      Multiset<String> counts = _valueCounts.get(entry.getKey());
       LambdaAccessor<ITEM, ?> lambdaAccessor = entry.getValue();
-      Set<String> values = getValues(lambdaAccessor, items);
-      Set<String> currentValues = _uniqueValueMap.get(name);
-      if (currentValues == null) {
-        _uniqueValueMap.put(name, currentValues = newSet());
-      }
-      if (currentValues.addAll(values)) {
-        change = true;
-      }
-      if (currentValues.retainAll(values)) {
-        change = true;
+      // netted first, so an update that keeps its value never looks like the value went away and came back
+      Map<String, Integer> deltas = new HashMap<>();
+      addDeltas(deltas, lambdaAccessor, diff.getRemoved(), -1);
+      addDeltas(deltas, lambdaAccessor, diff.getReplaced(), -1);
+      addDeltas(deltas, lambdaAccessor, diff.getChanged(), 1);
+      addDeltas(deltas, lambdaAccessor, diff.getAdded(), 1);
+      for (Entry<String, Integer> delta : deltas.entrySet()) {
+        change |= updateCount(counts, delta.getKey(), delta.getValue());
       }
     }
     if (change) {
@@ -150,6 +430,25 @@ public class FilterInfo<ITEM> {
     }
   }
 
+  private void addDeltas(Map<String, Integer> deltas, LambdaAccessor<ITEM, ?> lambdaAccessor,
+      Collection<ITEM> items, int delta) {
+    for (ITEM item : items) {
+      for (String value : getValues(lambdaAccessor, item)) {
+        deltas.merge(value, delta, Integer::sum);
+      }
+    }
+  }
+
+  // returns true when the count crosses zero, that is a value appears or disappears
+  private boolean updateCount(Multiset<String> counts, String value, int delta) {
+    if (delta > 0) {
+      return counts.add(value, delta) == 0;
+    } else if (delta < 0) {
+      return counts.remove(value, -delta) + delta <= 0;
+    }
+    return false;
+  }
+
   private synchronized void pushFilterValues() {
     for (PushComponent pushComponent : ImmutableSet.copyOf(_pushCache)) {
       doPush(pushComponent);
@@ -171,48 +470,20 @@ public class FilterInfo<ITEM> {
     }
   }
 
-  private Set<String> newSet() {
-    return Collections.newSetFromMap(new ConcurrentHashMap<>());
-  }
-
-  private Set<String> getValues(LambdaAccessor<ITEM, ?> lambdaAccessor, Collection<ITEM> items) {
-    Set<String> values = new HashSet<>();
-    for (ITEM item : items) {
-      Object object = lambdaAccessor.getValue(item);
-      if (object != null) {
-        if (object instanceof Collection) {
-          for (Object o : (Collection<?>) object) {
-            if (o != null) {
-              values.add(o.toString());
-            }
-          }
-        } else {
-          values.add(object.toString());
+  private Set<String> getValues(LambdaAccessor<ITEM, ?> lambdaAccessor, ITEM item) {
+    Object object = lambdaAccessor.getValue(item);
+    if (object == null) {
+      return ImmutableSet.of();
+    } else if (object instanceof Collection) {
+      Set<String> values = new HashSet<>();
+      for (Object o : (Collection<?>) object) {
+        if (o != null) {
+          values.add(o.toString());
         }
       }
+      return values;
     }
-    return values;
-  }
-
-  @SneakyThrows
-  private Method findMethod(Class<ITEM> clazz, String getterMethod) {
-    try {
-      return clazz.getDeclaredMethod(getterMethod);
-    } catch (NoSuchMethodException e) {
-      return null;
-    }
-  }
-
-  private String findGetterMethod(Field field) {
-    Class<?> clazz = field.getType();
-    String name = field.getName();
-    name = name.substring(0, 1)
-               .toUpperCase()
-        + name.substring(1);
-    if (clazz == Boolean.TYPE) {
-      return "is" + name;
-    }
-    return "get" + name;
+    return ImmutableSet.of(object.toString());
   }
 
 }
@@ -1,20 +1,31 @@
 package vaadin.util.filter;
 
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.datepicker.DatePicker;
 import com.vaadin.flow.component.details.Details;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.component.listbox.MultiSelectListBox;
+import com.vaadin.flow.component.textfield.NumberField;
+import com.vaadin.flow.data.renderer.TextRenderer;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.dom.Style;
-import com.vaadin.flow.function.SerializablePredicate;
 
 import lombok.extern.slf4j.Slf4j;
 import vaadin.util.push.ItemManager;
@@ -22,17 +33,23 @@ import vaadin.util.push.PushComponent;
 import vaadin.util.push.PushManager;
 
 @Slf4j
-public class FilterPanel<ITEM> extends Div implements SerializablePredicate<ITEM>, PushComponent {
+public class FilterPanel<ITEM> extends Div implements PushComponent {
 
   private static final long serialVersionUID = 2143725702945792488L;
 
-  private final List<SerializablePredicate<ITEM>> _predicates = new ArrayList<>();
   private final AtomicReference<UI> _uiRef = new AtomicReference<>();
   private final boolean _empty;
   private final List<Filter<ITEM>> _filters;
   private final List<Details> _details = new ArrayList<>();
   private final List<MultiSelectListBox<String>> _listBoxes = new ArrayList<>();
   private final List<List<String>> _optionsLists = new ArrayList<>();
+  private final PushComponent _pushComponent;
+  private final List<RangeFilter> _rangeFilters;
+  private final Map<String, Supplier<FilterRange>> _rangeFields = new LinkedHashMap<>();
+  private final AtomicLong _selectionVersion = new AtomicLong();
+  private volatile FacetCounts _facetCounts;
+  private volatile ImmutableMap<String, ImmutableSet<String>> _selections = ImmutableMap.of();
+  private volatile ImmutableMap<String, FilterRange> _ranges = ImmutableMap.of();
 
   public FilterPanel(ItemManager<ITEM> itemManager, PushComponent pushComponent) {
     Style style = getStyle();
@@ -45,41 +62,151 @@ public class FilterPanel<ITEM> extends Div implements SerializablePredicate<ITEM
     style.set("box-shadow", "inset 0 1px 1px rgb(0 0 0 / 5%)");
 
     add(new Label("Filters"));
+    _pushComponent = pushComponent;
     _filters = itemManager.getFilters(this, pushComponent);
-    if (_filters.isEmpty()) {
+    _rangeFilters = itemManager.getRangeFilters();
+    if (_filters.isEmpty() && _rangeFilters.isEmpty()) {
       _empty = true;
     } else {
       _empty = false;
     }
     for (Filter<ITEM> filter : _filters) {
-      _predicates.add(filter.getPredicate());
       FilterOptions options = filter.getOptions();
       List<String> optionsList = options.getOptions();
       _optionsLists.add(optionsList);
       MultiSelectListBox<String> listBox = new MultiSelectListBox<>();
       Details details = new Details(filter.getName() + " (" + optionsList.size() + ")", listBox);
       _details.add(details);
+      listBox.addSelectionListener(event -> {
+        _selections = buildSelections();
+        _selectionVersion.incrementAndGet();
+      });
       listBox.addSelectionListener(filter.getListener());
+      listBox.setRenderer(new TextRenderer<>(value -> getLabel(filter.getName(), value)));
       listBox.setItems(optionsList);
       _listBoxes.add(listBox);
       add(details);
     }
+    for (RangeFilter rangeFilter : _rangeFilters) {
+      Div fields = rangeFilter.isDate() ? createDateFields(rangeFilter) : createNumberFields(rangeFilter);
+      add(new Details(rangeFilter.getName(), fields));
+    }
   }
 
-  @Override
-  public boolean test(ITEM t) {
-    for (SerializablePredicate<ITEM> predicate : _predicates) {
-      if (!predicate.test(t)) {
-        return false;
+  private Div createDateFields(RangeFilter rangeFilter) {
+    DatePicker from = new DatePicker("From");
+    DatePicker to = new DatePicker("To");
+    from.addValueChangeListener(event -> onRangeChange());
+    to.addValueChangeListener(event -> onRangeChange());
+    ZoneId zoneId = ZoneId.systemDefault();
+    // the whole of the last day is in range
+    _rangeFields.put(rangeFilter.getName(), () -> FilterRange.of(from.isEmpty() ? null
+        : (double) from.getValue()
+                       .atStartOfDay(zoneId)
+                       .toInstant()
+                       .toEpochMilli(),
+        to.isEmpty() ? null
+            : (double) to.getValue()
+                         .plusDays(1)
+                         .atStartOfDay(zoneId)
+                         .toInstant()
+                         .toEpochMilli() - 1));
+    return new Div(from, to);
+  }
+
+  private Div createNumberFields(RangeFilter rangeFilter) {
+    NumberField min = new NumberField("Min");
+    NumberField max = new NumberField("Max");
+    min.setValueChangeMode(ValueChangeMode.LAZY);
+    max.setValueChangeMode(ValueChangeMode.LAZY);
+    min.addValueChangeListener(event -> onRangeChange());
+    max.addValueChangeListener(event -> onRangeChange());
+    _rangeFields.put(rangeFilter.getName(), () -> FilterRange.of(min.getValue(), max.getValue()));
+    return new Div(min, max);
+  }
+
+  private void onRangeChange() {
+    ImmutableMap<String, FilterRange> ranges = buildRanges();
+    if (ranges.equals(_ranges)) {
+      return;
+    }
+    _ranges = ranges;
+    _selectionVersion.incrementAndGet();
+    _pushComponent.push();
+  }
+
+  private ImmutableMap<String, FilterRange> buildRanges() {
+    ImmutableMap.Builder<String, FilterRange> builder = ImmutableMap.builder();
+    for (Entry<String, Supplier<FilterRange>> entry : _rangeFields.entrySet()) {
+      FilterRange range = entry.getValue()
+                               .get();
+      if (range.getMin() != null || range.getMax() != null) {
+        builder.put(entry.getKey(), range);
       }
     }
-    return true;
+    return builder.build();
   }
 
   public boolean isEmpty() {
     return _empty;
   }
 
+  // safe to read off the session lock
+  public ImmutableMap<String, ImmutableSet<String>> getSelections() {
+    return _selections;
+  }
+
+  // safe to read off the session lock
+  public ImmutableMap<String, FilterRange> getRanges() {
+    return _ranges;
+  }
+
+  private ImmutableMap<String, ImmutableSet<String>> buildSelections() {
+    ImmutableMap.Builder<String, ImmutableSet<String>> builder = ImmutableMap.builder();
+    for (int i = 0; i < _filters.size(); i++) {
+      Set<String> selectedItems = _listBoxes.get(i)
+                                            .getSelectedItems();
+      if (!selectedItems.isEmpty()) {
+        builder.put(_filters.get(i)
+                            .getName(),
+            ImmutableSet.copyOf(selectedItems));
+      }
+    }
+    return builder.build();
+  }
+
+  public long getSelectionVersion() {
+    return _selectionVersion.get();
+  }
+
+  // called with the ui lock held, only re-renders the options whose count moved
+  public void setFacetCounts(FacetCounts facetCounts) {
+    FacetCounts previous = _facetCounts;
+    _facetCounts = facetCounts;
+    if (previous == facetCounts) {
+      return;
+    }
+    for (int i = 0; i < _filters.size(); i++) {
+      String filterName = _filters.get(i)
+                                  .getName();
+      MultiSelectListBox<String> listBox = _listBoxes.get(i);
+      for (String value : _optionsLists.get(i)) {
+        if (previous == null || previous.getCount(filterName, value) != facetCounts.getCount(filterName, value)) {
+          listBox.getDataProvider()
+                 .refreshItem(value);
+        }
+      }
+    }
+  }
+
+  private String getLabel(String filterName, String value) {
+    FacetCounts facetCounts = _facetCounts;
+    if (facetCounts == null) {
+      return value;
+    }
+    return value + " (" + facetCounts.getCount(filterName, value) + ")";
+  }
+
   @Override
   public void push() {
     UI ui = _uiRef.get();
@@ -0,0 +1,18 @@
+package vaadin.util.filter;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+// inclusive bounds, a null bound is open, dates are in epoch milliseconds
+@Value
+@AllArgsConstructor(staticName = "of")
+public class FilterRange {
+
+  Double min;
+  Double max;
+
+  public boolean contains(double key) {
+    return (min == null || key >= min) && (max == null || key <= max) && !Double.isNaN(key);
+  }
+
+}
@@ -0,0 +1,10 @@
+package vaadin.util.filter;
+
+public enum FilterType {
+
+  // multi-select over the distinct values
+  VALUES,
+  // min and max over a number or date
+  RANGE
+
+}
@@ -11,4 +11,6 @@ import java.lang.annotation.Target;
 @Target({ FIELD, METHOD })
 public @interface Filterable {
   String value();
+
+  FilterType type() default FilterType.VALUES;
 }
@@ -0,0 +1,15 @@
+package vaadin.util.filter;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class RangeFilter {
+
+  String name;
+  boolean date;
+
+}
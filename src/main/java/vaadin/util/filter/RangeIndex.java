@@ -0,0 +1,223 @@
+package vaadin.util.filter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.google.common.collect.ImmutableMap;
+
+import vaadin.util.push.ItemSnapshot;
+import vaadin.util.push.LambdaAccessor;
+import vaadin.util.push.RowSort;
+
+public class RangeIndex {
+
+  private final long _generation;
+  private final int _size;
+  private final Map<String, SortedColumn> _columns;
+
+  // the rows with a value, ascending by key, so a range is one contiguous block of them
+  private static class SortedColumn {
+    // by row, NaN when the row has no value
+    final double[] rowKeys;
+    final double[] keys;
+    final int[] rows;
+
+    SortedColumn(double[] rowKeys, double[] keys, int[] rows) {
+      this.rowKeys = rowKeys;
+      this.keys = keys;
+      this.rows = rows;
+    }
+
+    // the rows that kept their key stay in order, so only the moved and added ones are sorted and merged in
+    <ITEM> SortedColumn update(LambdaAccessor<ITEM, ?> lambdaAccessor, ItemSnapshot<ITEM> snapshot,
+        int[] changedRows) {
+      int previousSize = rowKeys.length;
+      int size = snapshot.size();
+      double[] newRowKeys = Arrays.copyOf(rowKeys, size);
+      BitSet moved = new BitSet(previousSize);
+      for (int row : changedRows) {
+        double key = getKey(lambdaAccessor, snapshot.get(row));
+        if (Double.compare(key, rowKeys[row]) != 0) {
+          newRowKeys[row] = key;
+          moved.set(row);
+        }
+      }
+      if (moved.isEmpty() && size == previousSize) {
+        return this;
+      }
+      int[] inserted = new int[moved.cardinality() + size - previousSize];
+      int count = 0;
+      for (int row = moved.nextSetBit(0); row >= 0; row = moved.nextSetBit(row + 1)) {
+        if (!Double.isNaN(newRowKeys[row])) {
+          inserted[count++] = row;
+        }
+      }
+      for (int row = previousSize; row < size; row++) {
+        double key = getKey(lambdaAccessor, snapshot.get(row));
+        newRowKeys[row] = key;
+        if (!Double.isNaN(key)) {
+          inserted[count++] = row;
+        }
+      }
+      inserted = Arrays.copyOf(inserted, count);
+      RowSort.sort(inserted, (row1, row2) -> Double.compare(newRowKeys[row1], newRowKeys[row2]));
+      double[] mergedKeys = new double[keys.length + count];
+      int[] mergedRows = new int[keys.length + count];
+      int merged = 0;
+      int i = 0;
+      int j = 0;
+      while (i < keys.length || j < count) {
+        if (i < keys.length && moved.get(rows[i])) {
+          i++;
+        } else if (j == count || (i < keys.length && keys[i] <= newRowKeys[inserted[j]])) {
+          mergedKeys[merged] = keys[i];
+          mergedRows[merged++] = rows[i++];
+        } else {
+          mergedKeys[merged] = newRowKeys[inserted[j]];
+          mergedRows[merged++] = inserted[j++];
+        }
+      }
+      return new SortedColumn(newRowKeys, Arrays.copyOf(mergedKeys, merged), Arrays.copyOf(mergedRows, merged));
+    }
+
+    void select(FilterRange range, BitSet bitSet) {
+      int from = range.getMin() == null ? 0 : lowerBound(range.getMin());
+      int to = range.getMax() == null ? keys.length : upperBound(range.getMax());
+      for (int i = from; i < to; i++) {
+        bitSet.set(rows[i]);
+      }
+    }
+
+    // first position with a key at or above the value
+    private int lowerBound(double value) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (keys[middle] < value) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    // first position with a key above the value
+    private int upperBound(double value) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (keys[middle] <= value) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+
+  private RangeIndex(long generation, int size, Map<String, SortedColumn> columns) {
+    _generation = generation;
+    _size = size;
+    _columns = columns;
+  }
+
+  public static <ITEM> RangeIndex build(ItemSnapshot<ITEM> snapshot,
+      Map<String, LambdaAccessor<ITEM, ?>> lambdaAccessorMap) {
+    int size = snapshot.size();
+    ImmutableMap.Builder<String, SortedColumn> builder = ImmutableMap.builder();
+    for (Entry<String, LambdaAccessor<ITEM, ?>> entry : lambdaAccessorMap.entrySet()) {
+      LambdaAccessor<ITEM, ?> lambdaAccessor = entry.getValue();
+      double[] rowKeys = new double[size];
+      int[] rows = new int[size];
+      int count = 0;
+      for (int row = 0; row < size; row++) {
+        double key = getKey(lambdaAccessor, snapshot.get(row));
+        rowKeys[row] = key;
+        if (!Double.isNaN(key)) {
+          rows[count++] = row;
+        }
+      }
+      int[] sortedRows = new int[count];
+      System.arraycopy(rows, 0, sortedRows, 0, count);
+      RowSort.sort(sortedRows, (row1, row2) -> Double.compare(rowKeys[row1], rowKeys[row2]));
+      double[] keys = new double[count];
+      for (int i = 0; i < count; i++) {
+        keys[i] = rowKeys[sortedRows[i]];
+      }
+      builder.put(entry.getKey(), new SortedColumn(rowKeys, keys, sortedRows));
+    }
+    return new RangeIndex(snapshot.getGeneration(), size, builder.build());
+  }
+
+  // the snapshot keeps the rows of the previous index in place and appends the added ones, the changed rows are
+  // those of the previous index whose items changed
+  public static <ITEM> RangeIndex update(RangeIndex previous, ItemSnapshot<ITEM> snapshot,
+      Map<String, LambdaAccessor<ITEM, ?>> lambdaAccessorMap, int[] changedRows) {
+    ImmutableMap.Builder<String, SortedColumn> builder = ImmutableMap.builder();
+    for (Entry<String, LambdaAccessor<ITEM, ?>> entry : lambdaAccessorMap.entrySet()) {
+      builder.put(entry.getKey(), previous._columns.get(entry.getKey())
+                                                   .update(entry.getValue(), snapshot, changedRows));
+    }
+    return new RangeIndex(snapshot.getGeneration(), snapshot.size(), builder.build());
+  }
+
+  // NaN when the item has no value
+  public static <ITEM> double getKey(LambdaAccessor<ITEM, ?> lambdaAccessor, ITEM item) {
+    if (item == null) {
+      return Double.NaN;
+    } else if (lambdaAccessor.isIntegral() || lambdaAccessor.isFloatingPoint()) {
+      return lambdaAccessor.getDouble(item);
+    }
+    Object value = lambdaAccessor.getValue(item);
+    if (value instanceof Date) {
+      return ((Date) value).getTime();
+    } else if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    return Double.NaN;
+  }
+
+  public static boolean isRangeType(Class<?> type) {
+    return type == Integer.TYPE || type == Long.TYPE || type == Short.TYPE || type == Byte.TYPE
+        || type == Double.TYPE || type == Float.TYPE || Number.class.isAssignableFrom(type)
+        || Date.class.isAssignableFrom(type);
+  }
+
+  public long getGeneration() {
+    return _generation;
+  }
+
+  public int size() {
+    return _size;
+  }
+
+  public BitSet select(Map<String, FilterRange> ranges) {
+    BitSet result = null;
+    for (Entry<String, FilterRange> entry : ranges.entrySet()) {
+      SortedColumn column = _columns.get(entry.getKey());
+      if (column == null) {
+        continue;
+      }
+      BitSet bitSet = new BitSet(_size);
+      column.select(entry.getValue(), bitSet);
+      if (result == null) {
+        result = bitSet;
+      } else {
+        result.and(bitSet);
+      }
+    }
+    if (result == null) {
+      result = new BitSet(_size);
+      result.set(0, _size);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,301 @@
+package vaadin.util.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+import vaadin.util.filter.Filterable;
+import vaadin.util.push.ItemKey;
+import vaadin.util.push.ItemMetadata;
+import vaadin.util.push.Searchable;
+
+// writes <Class>_ItemMetadata next to each item class with annotated members, the getters are called through
+// method references so the runtime needs neither reflection nor LambdaMetafactory to read them
+@SupportedAnnotationTypes({ "vaadin.util.push.ItemKey", "vaadin.util.push.Searchable",
+    "vaadin.util.filter.Filterable" })
+public class ItemMetadataProcessor extends AbstractProcessor {
+
+  private static final String LAMBDA_ACCESSOR = "vaadin.util.push.LambdaAccessor";
+  private static final String FILTER_ACCESSOR = "vaadin.util.filter.FilterAccessor";
+
+  private final Set<String> _generated = new HashSet<>();
+
+  private static class Member {
+    final Element element;
+    final String getterMethod;
+    final TypeMirror type;
+
+    Member(Element element, String getterMethod, TypeMirror type) {
+      this.element = element;
+      this.getterMethod = getterMethod;
+      this.type = type;
+    }
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    Set<TypeElement> types = new LinkedHashSet<>();
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        Element enclosing = element.getEnclosingElement();
+        if (enclosing instanceof TypeElement) {
+          types.add((TypeElement) enclosing);
+        }
+      }
+    }
+    for (TypeElement type : types) {
+      String className = processingEnv.getElementUtils()
+                                      .getBinaryName(type)
+                                      .toString()
+          + ItemMetadata.SUFFIX;
+      if (_generated.add(className)) {
+        generate(type, className);
+      }
+    }
+    return false;
+  }
+
+  private void generate(TypeElement type, String className) {
+    if (isPrivate(type)) {
+      processingEnv.getMessager()
+                   .printMessage(Kind.WARNING, "Private item class is read by reflection", type);
+      return;
+    }
+    List<Member> members = getMembers(type);
+    String packageName = getPackageName(type);
+    String simpleName = packageName.isEmpty() ? className : className.substring(packageName.length() + 1);
+    String itemType = processingEnv.getTypeUtils()
+                                   .erasure(type.asType())
+                                   .toString();
+    try (Writer writer = processingEnv.getFiler()
+                                      .createSourceFile(className, type)
+                                      .openWriter();
+        PrintWriter out = new PrintWriter(writer)) {
+      if (!packageName.isEmpty()) {
+        out.println("package " + packageName + ";");
+        out.println();
+      }
+      out.println("// generated by " + getClass().getName() + ", do not edit");
+      out.println("public final class " + simpleName + " implements vaadin.util.push.ItemMetadata<" + itemType
+          + "> {");
+      out.println();
+      out.println("  private final " + LAMBDA_ACCESSOR + "<" + itemType + ", ?> _itemKey;");
+      out.println("  private final java.util.List<" + LAMBDA_ACCESSOR + "<" + itemType + ", ?>> _searchables;");
+      out.println("  private final java.util.List<" + FILTER_ACCESSOR + "<" + itemType + ">> _filterables;");
+      out.println();
+      out.println("  public " + simpleName + "() {");
+      List<String> searchables = new ArrayList<>();
+      List<String> filterables = new ArrayList<>();
+      String itemKey = "null";
+      for (int i = 0; i < members.size(); i++) {
+        Member member = members.get(i);
+        String accessor = "accessor" + i;
+        out.println("    " + LAMBDA_ACCESSOR + "<" + itemType + ", ?> " + accessor + " = "
+            + getAccessor(itemType, member) + ";");
+        if (member.element.getAnnotation(ItemKey.class) != null && itemKey.equals("null")) {
+          itemKey = accessor;
+        }
+        if (member.element.getAnnotation(Searchable.class) != null) {
+          searchables.add(accessor);
+        }
+        Filterable filterable = member.element.getAnnotation(Filterable.class);
+        if (filterable != null) {
+          filterables.add(FILTER_ACCESSOR + ".of(" + processingEnv.getElementUtils()
+                                                                  .getConstantExpression(filterable.value())
+              + ", vaadin.util.filter.FilterType." + filterable.type()
+                                                           .name()
+              + ", " + accessor + ")");
+        }
+      }
+      out.println("    _itemKey = " + itemKey + ";");
+      out.println("    _searchables = " + toList(searchables) + ";");
+      out.println("    _filterables = " + toList(filterables) + ";");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public " + LAMBDA_ACCESSOR + "<" + itemType + ", ?> getItemKey() {");
+      out.println("    return _itemKey;");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public java.util.List<" + LAMBDA_ACCESSOR + "<" + itemType + ", ?>> getSearchables() {");
+      out.println("    return _searchables;");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public java.util.List<" + FILTER_ACCESSOR + "<" + itemType + ">> getFilterables() {");
+      out.println("    return _filterables;");
+      out.println("  }");
+      out.println();
+      out.println("}");
+    } catch (IOException e) {
+      processingEnv.getMessager()
+                   .printMessage(Kind.ERROR, "Could not write " + className + ": " + e.getMessage(), type);
+    }
+  }
+
+  // fields first then methods, the same order as the reflection fallback
+  private List<Member> getMembers(TypeElement type) {
+    List<Member> members = new ArrayList<>();
+    for (Element element : type.getEnclosedElements()) {
+      if (element.getKind() == ElementKind.FIELD && isAnnotated(element)) {
+        VariableElement field = (VariableElement) element;
+        ExecutableElement getter = findGetterMethod(type, field);
+        if (getter == null) {
+          processingEnv.getMessager()
+                       .printMessage(Kind.ERROR, "No accessible getter found for field " + field.getSimpleName()
+                           + " of " + type.getQualifiedName(), field);
+        } else {
+          members.add(new Member(field, getter.getSimpleName()
+                                              .toString(),
+              field.asType()));
+        }
+      }
+    }
+    for (Element element : type.getEnclosedElements()) {
+      if (element.getKind() == ElementKind.METHOD && isAnnotated(element)) {
+        ExecutableElement method = (ExecutableElement) element;
+        if (!isGetter(method)) {
+          processingEnv.getMessager()
+                       .printMessage(Kind.ERROR, "Annotated method " + method.getSimpleName()
+                           + " must be a non-private instance getter", method);
+        } else {
+          members.add(new Member(method, method.getSimpleName()
+                                               .toString(),
+              method.getReturnType()));
+        }
+      }
+    }
+    return members;
+  }
+
+  private String getAccessor(String itemType, Member member) {
+    String getter = itemType + "::" + member.getterMethod;
+    TypeKind kind = member.type.getKind();
+    switch (kind) {
+    case INT:
+    case SHORT:
+    case BYTE:
+    case CHAR:
+      return LAMBDA_ACCESSOR + ".ofInt(" + member.type + ".class, " + getter + ")";
+    case LONG:
+      return LAMBDA_ACCESSOR + ".ofLong(" + getter + ")";
+    case FLOAT:
+    case DOUBLE:
+      return LAMBDA_ACCESSOR + ".ofDouble(" + member.type + ".class, " + getter + ")";
+    case BOOLEAN:
+      return LAMBDA_ACCESSOR + ".ofBoolean(" + getter + ")";
+    default:
+      String valueType = processingEnv.getTypeUtils()
+                                      .erasure(member.type)
+                                      .toString();
+      return LAMBDA_ACCESSOR + ".<" + itemType + ", Object>of(" + valueType + ".class, " + getter + ")";
+    }
+  }
+
+  private static String toList(List<String> values) {
+    if (values.isEmpty()) {
+      return "java.util.Collections.emptyList()";
+    }
+    return "java.util.Collections.unmodifiableList(java.util.Arrays.asList(" + String.join(", ", values) + "))";
+  }
+
+  private static boolean isAnnotated(Element element) {
+    return element.getAnnotation(ItemKey.class) != null || element.getAnnotation(Searchable.class) != null
+        || element.getAnnotation(Filterable.class) != null;
+  }
+
+  private static boolean isPrivate(TypeElement type) {
+    for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+      if (element.getModifiers()
+                 .contains(Modifier.PRIVATE)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String getPackageName(TypeElement type) {
+    PackageElement packageElement = processingEnv.getElementUtils()
+                                                 .getPackageOf(type);
+    return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName()
+                                                           .toString();
+  }
+
+  // looks the getter up among the methods of the type, lombok's included as lombok runs first, rather than guessing
+  // a name the class may not have
+  private ExecutableElement findGetterMethod(TypeElement type, VariableElement field) {
+    Types types = processingEnv.getTypeUtils();
+    List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements());
+    for (String name : getGetterNames(field)) {
+      for (ExecutableElement method : methods) {
+        if (method.getSimpleName()
+                  .contentEquals(name)
+            && isGetter(method)
+            && types.isSameType(types.erasure(method.getReturnType()), types.erasure(field.asType()))) {
+          return method;
+        }
+      }
+    }
+    return null;
+  }
+
+  // the names lombok would give the getter, a boolean isActive is read by isActive()
+  private static List<String> getGetterNames(VariableElement field) {
+    String name = field.getSimpleName()
+                       .toString();
+    String capitalized = name.substring(0, 1)
+                             .toUpperCase()
+        + name.substring(1);
+    List<String> names = new ArrayList<>();
+    if (field.asType()
+             .getKind() == TypeKind.BOOLEAN) {
+      if (name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2))) {
+        names.add(name);
+      }
+      names.add("is" + capitalized);
+    }
+    names.add("get" + capitalized);
+    return names;
+  }
+
+  // the generated class sits in the same package, so anything but private can be called
+  private static boolean isGetter(ExecutableElement method) {
+    return method.getParameters()
+                 .isEmpty()
+        && method.getReturnType()
+                 .getKind() != TypeKind.VOID
+        && !method.getModifiers()
+                  .contains(Modifier.STATIC)
+        && !method.getModifiers()
+                  .contains(Modifier.PRIVATE);
+  }
+
+}
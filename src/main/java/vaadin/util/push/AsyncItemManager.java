@@ -26,7 +26,12 @@ public abstract class AsyncItemManager<ITEM> extends ItemManager<ITEM> {
     return (taskCanceled, taskProgress) -> {
       try {
         _runningUpdate.set(true);
+        long generation = getGeneration();
         taskRunnable.call(taskCanceled, taskProgress);
+        if (getGeneration() == generation) {
+          // the task did not publish its own deltas
+          itemsChanged();
+        }
         updateFilterValues();
       } finally {
         _runningUpdate.set(false);
@@ -8,15 +8,19 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.helpers.FormattingTuple;
@@ -44,6 +48,8 @@ import com.vaadin.flow.component.contextmenu.SubMenu;
 import com.vaadin.flow.component.details.Details;
 import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridMultiSelectionModel;
+import com.vaadin.flow.component.grid.GridMultiSelectionModel.SelectAllCheckboxVisibility;
 import com.vaadin.flow.component.grid.GridVariant;
 import com.vaadin.flow.component.grid.ItemClickEvent;
 import com.vaadin.flow.component.html.Div;
@@ -55,33 +61,48 @@ import com.vaadin.flow.component.menubar.MenuBarVariant;
 import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.notification.NotificationVariant;
 import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.data.provider.DataChangeEvent.DataRefreshEvent;
 import com.vaadin.flow.data.provider.DataCommunicator;
 import com.vaadin.flow.data.provider.DataProvider;
-import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.provider.QuerySortOrder;
 import com.vaadin.flow.data.selection.MultiSelectionEvent;
 import com.vaadin.flow.data.selection.SelectionEvent;
 import com.vaadin.flow.data.selection.SelectionListener;
 import com.vaadin.flow.data.value.HasValueChangeMode;
 import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.function.SerializablePredicate;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.shared.Registration;
 
 import lombok.extern.slf4j.Slf4j;
 import vaadin.util.action.Action;
+import vaadin.util.action.Action.ActionBuilder;
+import vaadin.util.action.ActionBatchListener;
 import vaadin.util.action.ActionEnabled;
+import vaadin.util.filter.FacetCounts;
 import vaadin.util.filter.FilterPanel;
 import vaadin.util.filter.FilterPanelView;
+import vaadin.util.task.Task;
+import vaadin.util.task.TaskManager;
+import vaadin.util.task.TaskRunnable;
 
 @Slf4j
 public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implements PushComponent {
 
+  public static final String MAX_REFRESH_ITEMS_PROPERTY = "vaadin.util.push.maxRefreshItems";
+
   private static final Splitter SPACE_SPLITTER = Splitter.on(" ");
+  private static final int MAX_REFRESH_ITEMS = Integer.getInteger(MAX_REFRESH_ITEMS_PROPERTY, 1000);
   private static final long serialVersionUID = 9064915736318224076L;
   private static final Comparator<Action> COMPARATOR = (o1, o2) -> o1.getName()
                                                                      .compareTo(o2.getName());
 
   private final NumberFormat _format = NumberFormat.getInstance();
   private final AtomicReference<UI> _uiRef = new AtomicReference<>();
-  private final ListDataProvider<ITEM> _dataProvider;
+  private final boolean _lazy;
+  private final ItemListDataProvider<ITEM> _listDataProvider;
+  private final ItemDataProvider<ITEM> _itemDataProvider;
+  private final DataProvider<ITEM, ?> _dataProvider;
   private final Grid<ITEM> _grid;
   private final AtomicBoolean _shift = new AtomicBoolean();
   private final DataCommunicator<ITEM> _dataCommunicator;
@@ -90,25 +111,69 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
   private final Map<String, MenuItem> _actionMenuItems = new ConcurrentHashMap<>();
   private final Div _menuDiv;
   private final FilterPanel<ITEM> _filterPanel;
-  private final SerializablePredicate<ITEM> _filterPredicate;
   private final Label _countText;
-  private final SearchableType<ITEM> _searchableType;
   private final Button _clearSelections;
+  private final Button _selectAll;
   private final ItemManager<ITEM> _itemManager;
-  private SerializablePredicate<ITEM> _searchPredicate = t -> true;
+  private final AtomicLong _filterVersion = new AtomicLong();
+  private volatile FilteredIndex<ITEM> _filteredIndex;
+  private volatile SerializablePredicate<ITEM> _columnFilter;
+  private volatile ItemSelection<ITEM> _selection = ItemSelection.empty();
+  private SortedIndex<ITEM> _sortedIndex;
+  private Comparator<ITEM> _sortedBy;
+  private volatile ImmutableList<String> _searchTokens = ImmutableList.of();
+  private final Queue<ItemDelta<ITEM>> _itemDeltas = new ConcurrentLinkedQueue<>();
+  private Registration _itemDeltaRegistration;
+  private long _itemsGeneration;
+  // advanced by the apply step, so a push that never got the session lock is not counted as applied
+  private volatile long _lastGeneration;
+  private volatile long _lastFilterVersion;
+  // at most one apply step waits for the session lock, a push arriving meanwhile runs again once it is done
+  private final Object _accessLock = new Object();
+  private boolean _accessPending;
+  private boolean _pushAgain;
 
   public BasePushView(ItemManager<ITEM> itemManager) {
+    this(itemManager, false);
+  }
+
+  public BasePushView(ItemManager<ITEM> itemManager, boolean lazy) {
     _itemManager = itemManager;
-    Class<ITEM> itemClass = getItemClass();
+    _lazy = lazy;
 
-    _dataProvider = DataProvider.ofCollection(getDataItems());
-    GridBuilder<ITEM> builder = GridBuilder.create(_dataProvider)
-                                           .withFilter(getGridFilter());
+    _lastGeneration = _itemManager.getGeneration();
+    ItemSnapshot<ITEM> snapshot = _itemManager.getSnapshot();
+    _itemsGeneration = snapshot.getGeneration();
+    // the lazy data provider reads the filter panel through getItemQuery
+    _filterPanel = new FilterPanel<>(_itemManager, this);
+    GridBuilder<ITEM> builder;
+    if (_lazy) {
+      _itemDataProvider = new ItemDataProvider<>(_itemManager, this::getItemQuery, (o1, o2) -> o1.compareTo(o2));
+      _listDataProvider = null;
+      _dataProvider = _itemDataProvider;
+      builder = GridBuilder.create(_itemDataProvider);
+    } else {
+      _listDataProvider = new ItemListDataProvider<>(_itemManager, snapshot);
+      _listDataProvider.setSortComparator((o1, o2) -> o1.compareTo(o2));
+      _itemDataProvider = null;
+      _dataProvider = _listDataProvider;
+      _listDataProvider.setFilter(getGridFilter());
+      builder = GridBuilder.create(_listDataProvider, this::setColumnFilter);
+    }
+    _dataProvider.addDataProviderListener(event -> {
+      // row refreshes come from push itself, anything else is a filter change
+      if (!(event instanceof DataRefreshEvent)) {
+        _filterVersion.incrementAndGet();
+      }
+    });
     _grid = createGrid(builder);
     _grid.addThemeVariants(GridVariant.LUMO_ROW_STRIPES);
-    _dataProvider.setSortComparator((o1, o2) -> o1.compareTo(o2));
     _dataCommunicator = _grid.getDataCommunicator();
-    _searchableType = new SearchableType<ITEM>(itemClass);
+    if (!_lazy) {
+      // the grid hands the sort to its data communicator before telling the listeners
+      _grid.addSortListener(event -> _listDataProvider.setSort(_dataCommunicator.getBackEndSorting(),
+          _dataCommunicator.getInMemorySorting() != null));
+    }
 
     List<Action> actions = getActions();
     if (actions == null) {
@@ -118,6 +183,9 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     Collections.sort(_actions, COMPARATOR);
     if (!_actions.isEmpty()) {
       _grid.setSelectionMode(Grid.SelectionMode.MULTI);
+      // the header checkbox copies every row into the grid selection, select all matching replaces it
+      ((GridMultiSelectionModel<ITEM>) _grid.getSelectionModel())
+          .setSelectAllCheckboxVisibility(SelectAllCheckboxVisibility.HIDDEN);
     }
 
     ComponentUtil.addListener(this, KeyDownEvent.class, event -> {
@@ -141,8 +209,8 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     _menuDiv = new Div();
     updateMenuLabel();
 
-    _filterPanel = new FilterPanel<>(_itemManager, this);
-    _filterPredicate = _filterPanel;
+    _filteredIndex = _itemManager.query(getItemQuery());
+    _lastFilterVersion = getFilterVersion();
 
     MenuItem actionsMenuItem = _actionMenuBar.addItem(_menuDiv);
     SubMenu actionsSubMenu = actionsMenuItem.getSubMenu();
@@ -177,12 +245,21 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     _clearSelections.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
     _clearSelections.setEnabled(false);
     _clearSelections.addClickListener(event -> {
-      _grid.deselectAll();
+      clearSelections();
+      push();
+    });
+
+    _selectAll = new Button("Select All Matching");
+    _selectAll.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+    _selectAll.setVisible(!_actions.isEmpty());
+    _selectAll.addClickListener(event -> {
+      selectAllMatching();
       push();
     });
 
     topDiv.add(button);
     topDiv.add(actionsDiv);
+    topDiv.add(_selectAll);
     topDiv.add(_clearSelections);
 
     TextField searchField = new TextField();
@@ -190,31 +267,16 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     searchField.addValueChangeListener(event -> {
       String value = searchField.getValue();
       List<String> parts = SPACE_SPLITTER.splitToList(value);
-      List<String> tokens = new ArrayList<>();
+      ImmutableList.Builder<String> tokensBuilder = ImmutableList.builder();
       for (String part : parts) {
         String s = part.trim()
                        .toLowerCase();
         if (!s.isEmpty()) {
-          tokens.add(part);
+          tokensBuilder.add(s);
         }
       }
-      if (tokens.isEmpty()) {
-        _searchPredicate = t -> true;
-      } else {
-        _searchPredicate = t -> {
-          String searchString = getSimpleSearchString(t);
-          if (searchString == null) {
-            return true;
-          }
-          String lowerCase = searchString.toLowerCase();
-          for (String token : tokens) {
-            if (lowerCase.contains(token)) {
-              return true;
-            }
-          }
-          return false;
-        };
-      }
+      _searchTokens = tokensBuilder.build();
+      _filterVersion.incrementAndGet();
       push();
     });
     searchField.setValueChangeMode(ValueChangeMode.LAZY);
@@ -224,6 +286,8 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     updateCount();
     topDiv.add(_countText);
     add(topDiv);
+    // wraps the event's set rather than copying it, registered first so the listener below sees it
+    _grid.addSelectionListener(event -> _selection = ItemSelection.of(event.getAllSelectedItems()));
     _grid.addSelectionListener(getSelectionListener());
     _grid.addItemClickListener(onRowClickSelectOrDeselect());
     add(_grid);
@@ -234,30 +298,69 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     sendSuccessNotification("Data Refreshed");
   }
 
+  // redraws the rows of the items for state they do not carry themselves, without waiting for a new generation
+  protected void refreshRows(Collection<ITEM> items) {
+    UI ui = _uiRef.get();
+    if (ui == null || items.isEmpty()) {
+      return;
+    }
+    ui.access(() -> {
+      for (ITEM item : items) {
+        _dataProvider.refreshItem(item);
+      }
+      ui.push();
+    });
+  }
+
   protected abstract List<Action> getActions();
 
   protected abstract Grid<ITEM> createGrid(GridBuilder<ITEM> builder);
 
-  protected Collection<ITEM> getDataItems() {
-    return _itemManager.getItems();
+  protected ActionBuilder asyncAction(String name, ActionBatchListener<ITEM> batchListener) {
+    return Action.builder()
+                 .name(name)
+                 .async(true)
+                 .batchListener(batchListener);
   }
 
   // protected List<Filter<ITEM>> getFilters() {
   // return _itemManager.getFilters(this);
   // }
 
-  public Set<ITEM> getSelectedItems() {
-    return _grid.getSelectedItems();
+  // iterate it rather than copying it, after a select all it stands for every matching row
+  public ItemSelection<ITEM> getSelectedItems() {
+    return _selection;
   }
 
   protected Grid<ITEM> getGrid() {
     return _grid;
   }
 
+  protected ItemQuery getItemQuery() {
+    return ItemQuery.builder()
+                    .filterSelections(_filterPanel.getSelections())
+                    .filterRanges(_filterPanel.getRanges())
+                    .searchTokens(_searchTokens)
+                    .build();
+  }
+
   private void updateCount() {
-    int totalCount = _dataProvider.getItems()
-                                  .size();
-    int filterCount = _dataCommunicator.getItemCount();
+    FilteredIndex<ITEM> filteredIndex = _filteredIndex;
+    updateCount(getFilteredCount(filteredIndex), filteredIndex.getSnapshot()
+                                                            .size());
+  }
+
+  // counts come from the filtered index of the current filter state and generation
+  private int getFilteredCount(FilteredIndex<ITEM> filteredIndex) {
+    SerializablePredicate<ITEM> columnFilter = getColumnFilter();
+    if (columnFilter == null) {
+      return filteredIndex.size();
+    }
+    return filteredIndex.and(columnFilter)
+                        .size();
+  }
+
+  private void updateCount(int filterCount, int totalCount) {
     if (filterCount == totalCount) {
       _countText.setText(" Item Count: " + formatNumber(totalCount));
     } else {
@@ -270,8 +373,7 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
   }
 
   private void updateMenuLabel() {
-    int size = _grid.getSelectedItems()
-                    .size();
+    int size = _selection.size();
     if (size > 0) {
       _clearSelections.setEnabled(true);
     }
@@ -285,19 +387,57 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     }
   }
 
-  private String getSimpleSearchString(ITEM item) {
-    return _searchableType.getSearchString(item);
+  private void setColumnFilter(SerializablePredicate<ITEM> columnFilter) {
+    _columnFilter = columnFilter;
+    SerializablePredicate<ITEM> gridFilter = getGridFilter();
+    _listDataProvider.setFilter(t -> gridFilter.test(t) && columnFilter.test(t));
+  }
+
+  private SerializablePredicate<ITEM> getColumnFilter() {
+    if (_lazy) {
+      return _itemDataProvider.getFilter();
+    }
+    return _columnFilter;
+  }
+
+  // the rows the grid shows, which is what a select all covers
+  private FilteredIndex<ITEM> getDisplayIndex() {
+    FilteredIndex<ITEM> filteredIndex = _filteredIndex;
+    SerializablePredicate<ITEM> columnFilter = getColumnFilter();
+    if (columnFilter == null) {
+      return filteredIndex;
+    }
+    return filteredIndex.and(columnFilter);
+  }
+
+  private void selectAllMatching() {
+    _grid.deselectAll();
+    _selection = ItemSelection.allMatching(getDisplayIndex());
+    updateActionMenuItemsEnablement();
+  }
+
+  private void clearSelections() {
+    _grid.deselectAll();
+    _selection = ItemSelection.empty();
+    updateActionMenuItemsEnablement();
   }
 
   private SerializablePredicate<ITEM> getGridFilter() {
-    return t -> _filterPredicate.test(t) && _searchPredicate.test(t);
+    return t -> {
+      FilteredIndex<ITEM> filteredIndex = _filteredIndex;
+      return filteredIndex == null || filteredIndex.test(t);
+    };
   }
 
   private ComponentEventListener<ClickEvent<MenuItem>> getActionListener(Action action) {
     ComponentEventListener<ClickEvent<MenuItem>> listener = action.getListener();
     return event -> {
       try {
-        listener.onComponentEvent(event);
+        if (action.isAsync()) {
+          submitAction(action);
+        } else {
+          listener.onComponentEvent(event);
+        }
       } catch (Throwable t) {
         log.error("Unknown error", t);
         sendErrorNotification(t.getMessage(), t);
@@ -308,10 +448,48 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     };
   }
 
+  // the selection is taken here, the batches run as a task and the view is pushed once when it ends
+  @SuppressWarnings("unchecked")
+  private void submitAction(Action action) {
+    ActionBatchListener<ITEM> batchListener = (ActionBatchListener<ITEM>) action.getBatchListener();
+    if (batchListener == null) {
+      throw new IllegalStateException("Async action " + action.getName() + " has no batch listener");
+    }
+    // a select all never changes, the grid's set is copied so clearing it after the submit cannot reach the task
+    Collection<ITEM> selection = _selection.isAllMatching() ? _selection : ImmutableList.copyOf(_selection);
+    int size = selection.size();
+    int batchSize = Math.max(1, action.getBatchSize());
+    TaskRunnable taskRunnable = (taskCanceled, taskProgress) -> {
+      try {
+        int processed = 0;
+        Iterator<ITEM> iterator = selection.iterator();
+        while (iterator.hasNext() && !taskCanceled.isCanceled()) {
+          List<ITEM> batch = new ArrayList<>(Math.min(batchSize, size - processed));
+          while (iterator.hasNext() && batch.size() < batchSize) {
+            batch.add(iterator.next());
+          }
+          batchListener.onBatch(batch);
+          processed += batch.size();
+          taskProgress.setProgress(processed / (double) size);
+        }
+      } finally {
+        push();
+      }
+    };
+    TaskManager.INSTANCE.submitTask(Task.builder()
+                                        .name(action.getName())
+                                        .description(formatNumber(size) + " items")
+                                        .taskRunnable(taskRunnable)
+                                        .build());
+  }
+
   @Override
   protected void onAttach(AttachEvent attachEvent) {
     log.debug("attach");
     _uiRef.set(attachEvent.getUI());
+    if (_itemDeltaRegistration == null) {
+      _itemDeltaRegistration = _itemManager.addItemDeltaListener(_itemDeltas::add);
+    }
     Optional<Component> parent = getParent();
     if (parent.isPresent()) {
       Component component = parent.get();
@@ -332,19 +510,26 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
   protected void onDetach(DetachEvent detachEvent) {
     log.debug("detach");
     _uiRef.set(null);
+    if (_itemDeltaRegistration != null) {
+      _itemDeltaRegistration.remove();
+      _itemDeltaRegistration = null;
+    }
+    _itemDeltas.clear();
+    // an apply step queued on the old ui never runs
+    synchronized (_accessLock) {
+      _accessPending = false;
+      _pushAgain = false;
+    }
     PushManager.INSTANCE.deregister(this);
   }
 
   @Override
-  public synchronized void push() {
-    ForkJoinPool.commonPool()
-                .submit(new Callable<Void>() {
-                  @Override
-                  public Void call() throws Exception {
-                    doPush(_uiRef.get());
-                    return null;
-                  }
-                });
+  public void push() {
+    UI ui = _uiRef.get();
+    if (ui == null) {
+      return;
+    }
+    PushScheduler.INSTANCE.schedule(ui, this, () -> doPush(ui));
   }
 
   protected interface DialogAction {
@@ -388,7 +573,7 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
   }
 
   public void clearAndPush() {
-    _grid.deselectAll();
+    clearSelections();
     push();
   }
 
@@ -436,44 +621,192 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
     dialog.open();
   }
 
+  // runs on a push scheduler thread, only the apply step takes the session lock
   private void doPush(UI ui) {
-    ui.access(() -> {
-      _filterPanel.push();
-      _dataCommunicator.reset();
-      Collection<ITEM> currentItems = _dataProvider.getItems();
-      Collection<ITEM> dataItems = getDataItems();
-      updateDataProviderIfNeeded(currentItems, dataItems);
+    synchronized (_accessLock) {
+      if (_accessPending) {
+        _pushAgain = true;
+        return;
+      }
+    }
+    _filterPanel.push();
+    long filterVersion = getFilterVersion();
+    if (_itemManager.getGeneration() == _lastGeneration && filterVersion == _lastFilterVersion) {
+      log.debug("generation {} unchanged, skipping push prep", _lastGeneration);
+      access(ui, () -> {
+        updateMenuLabel();
+        ui.push();
+      });
+      return;
+    }
+    ItemQuery itemQuery = getItemQuery();
+    FilteredIndex<ITEM> previousIndex = _filteredIndex;
+    FilteredIndex<ITEM> filteredIndex = _itemManager.query(itemQuery);
+    ItemSnapshot<ITEM> snapshot = filteredIndex.getSnapshot();
+    boolean filterChanged = filterVersion != _lastFilterVersion;
+    List<ItemDiff<ITEM>> diffs = pollDiffs(snapshot);
+    Set<Object> keys = filterChanged ? null : getChangedKeys(diffs);
+    List<ITEM> refreshItems = keys == null ? null : getRefreshItems(keys, previousIndex, filteredIndex);
+    FacetCounts facetCounts = _filterPanel.isEmpty() ? null : _itemManager.getFacetCounts(itemQuery);
+    int filterCount = getFilteredCount(filteredIndex);
+    ItemListDataProvider.View<ITEM> view = _lazy ? null : createView(filteredIndex);
+    access(ui, () -> {
+      if (!_lazy) {
+        _listDataProvider.setSnapshot(snapshot);
+        _listDataProvider.setView(view);
+      }
+      _filteredIndex = filteredIndex;
+      if (filterChanged && _selection.isAllMatching()) {
+        // a select all covers the rows of the filter it was made under
+        _selection = ItemSelection.empty();
+        updateActionMenuItemsEnablement();
+      }
+      if (facetCounts != null) {
+        _filterPanel.setFacetCounts(facetCounts);
+      }
+      if (refreshItems == null || !_grid.getSortOrder()
+                                       .isEmpty()) {
+        // with a view in place the grid reads its pages instead of filtering and sorting every row
+        _dataCommunicator.reset();
+      } else {
+        log.debug("refreshing {} rows instead of reset", refreshItems.size());
+        for (ITEM item : refreshItems) {
+          _dataProvider.refreshItem(item);
+        }
+      }
+      updateCount(filterCount, snapshot.size());
       updateMenuLabel();
-      updateCount();
       ui.push();
+      _lastGeneration = snapshot.getGeneration();
+      _lastFilterVersion = filterVersion;
     });
   }
 
-  private void updateDataProviderIfNeeded(Collection<ITEM> currentItems, Collection<ITEM> dataItems) {
-    if (currentItems == dataItems) {
-      // same instance
-      return;
+  // the filtered and sorted rows of the grid, built here so the apply step only swaps them in
+  private ItemListDataProvider.View<ITEM> createView(FilteredIndex<ITEM> filteredIndex) {
+    ItemSnapshot<ITEM> snapshot = filteredIndex.getSnapshot();
+    SerializablePredicate<ITEM> columnFilter = getColumnFilter();
+    if (columnFilter == null) {
+      return _listDataProvider.createView(snapshot, filteredIndex::containsRow);
     }
-    log.debug("start push prep");
-    for (ITEM item : dataItems) {
-      if (!currentItems.contains(item)) {
-        currentItems.add(item);
+    return _listDataProvider.createView(snapshot,
+        row -> filteredIndex.containsRow(row) && columnFilter.test(snapshot.get(row)));
+  }
+
+  // does not wait for the session lock, a push scheduled meanwhile is chained to the end of this one
+  private void access(UI ui, Command command) {
+    synchronized (_accessLock) {
+      _accessPending = true;
+    }
+    try {
+      ui.access(() -> {
+        long start = System.nanoTime();
+        try {
+          command.execute();
+        } finally {
+          PushScheduler.INSTANCE.recordLockHold(System.nanoTime() - start);
+          accessDone();
+        }
+      });
+    } catch (RuntimeException e) {
+      accessDone();
+      throw e;
+    }
+  }
+
+  private void accessDone() {
+    boolean pushAgain;
+    synchronized (_accessLock) {
+      _accessPending = false;
+      pushAgain = _pushAgain;
+      _pushAgain = false;
+    }
+    if (pushAgain) {
+      push();
+    }
+  }
+
+  // null when the changes are too many to refresh row by row
+  private Set<Object> getChangedKeys(List<ItemDiff<ITEM>> diffs) {
+    if (diffs == null) {
+      return null;
+    }
+    Set<Object> keys = new HashSet<>();
+    for (ItemDiff<ITEM> diff : diffs) {
+      addKeys(keys, diff.getAdded());
+      addKeys(keys, diff.getRemoved());
+      addKeys(keys, diff.getChanged());
+      if (keys.size() > MAX_REFRESH_ITEMS) {
+        return null;
+      }
+    }
+    return keys;
+  }
+
+  private void addKeys(Set<Object> keys, Collection<ITEM> items) {
+    for (ITEM item : items) {
+      keys.add(_itemManager.getItemKey(item));
+    }
+  }
+
+  // null when rows enter, leave or move, which needs a full reset
+  private List<ITEM> getRefreshItems(Set<Object> keys, FilteredIndex<ITEM> previousIndex,
+      FilteredIndex<ITEM> filteredIndex) {
+    List<ITEM> refreshItems = new ArrayList<>();
+    for (Object key : keys) {
+      ITEM previous = previousIndex.getSnapshot()
+                                   .getByKey(key);
+      ITEM item = filteredIndex.getSnapshot()
+                               .getByKey(key);
+      boolean wasVisible = previous != null && isVisible(previousIndex, previous);
+      boolean visible = item != null && isVisible(filteredIndex, item);
+      if (visible != wasVisible) {
+        return null;
+      }
+      if (visible) {
+        if (previous.compareTo(item) != 0) {
+          return null;
+        }
+        refreshItems.add(item);
       }
     }
-    ImmutableList<ITEM> list = ImmutableList.copyOf(currentItems);
-    for (ITEM item : list) {
-      if (!dataItems.contains(item)) {
-        currentItems.remove(item);
+    return refreshItems;
+  }
+
+  private boolean isVisible(FilteredIndex<ITEM> filteredIndex, ITEM item) {
+    SerializablePredicate<ITEM> columnFilter = getColumnFilter();
+    return filteredIndex.test(item) && (columnFilter == null || columnFilter.test(item));
+  }
+
+  private long getFilterVersion() {
+    return _filterVersion.get() + _filterPanel.getSelectionVersion();
+  }
+
+  // null when deltas were missed, e.g. while detached
+  private List<ItemDiff<ITEM>> pollDiffs(ItemSnapshot<ITEM> snapshot) {
+    List<ItemDiff<ITEM>> diffs = new ArrayList<>();
+    for (ItemDelta<ITEM> delta = _itemDeltas.peek(); delta != null
+        && delta.getGeneration() <= snapshot.getGeneration(); delta = _itemDeltas.peek()) {
+      _itemDeltas.poll();
+      if (delta.getFromGeneration() == _itemsGeneration) {
+        diffs.add(delta.getDiff());
+        _itemsGeneration = delta.getGeneration();
       }
     }
-    log.debug("finish push prep");
+    if (_itemsGeneration != snapshot.getGeneration()) {
+      _itemsGeneration = snapshot.getGeneration();
+      return null;
+    }
+    return diffs;
   }
 
   private ComponentEventListener<ItemClickEvent<ITEM>> onRowClickSelectOrDeselect() {
     return event -> {
       ITEM item = event.getItem();
-      if (_grid.getSelectedItems()
-               .contains(item)) {
+      ItemSelection<ITEM> selection = _selection;
+      if (selection.isAllMatching()) {
+        _selection = selection.contains(item) ? selection.exclude(item) : selection.include(item);
+      } else if (selection.contains(item)) {
         _grid.deselect(item);
       } else {
         _grid.select(item);
@@ -485,8 +818,7 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
 
   public ActionEnabled disabledWhenNothingSelected(ActionEnabled actionEnabled) {
     return () -> {
-      Set<ITEM> selectedItems = _grid.getSelectedItems();
-      if (selectedItems == null || selectedItems.isEmpty()) {
+      if (_selection.isEmpty()) {
         return false;
       }
       return actionEnabled.isEnabled();
@@ -495,8 +827,7 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
 
   public ActionEnabled disabledWhenNothingSelected() {
     return () -> {
-      Set<ITEM> selectedItems = _grid.getSelectedItems();
-      if (selectedItems == null || selectedItems.isEmpty()) {
+      if (_selection.isEmpty()) {
         return false;
       }
       return true;
@@ -598,13 +929,7 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
           }
           ITEM newItem = getFirstItem(mevent.getAddedSelection());
           if (_prevSelection != null && _shift.get()) {
-            int index1 = getSelectedItemIndex(_prevSelection);
-            int index2 = getSelectedItemIndex(newItem);
-            if (index1 < index2) {
-              selectItemsBetweenForward(index1, index2);
-            } else {
-              selectItemsBetweenForward(index2, index1);
-            }
+            selectRange(_prevSelection, newItem);
           }
           _prevSelection = newItem;
         } finally {
@@ -616,21 +941,57 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
 
   }
 
-  private int getSelectedItemIndex(ITEM item) {
-    for (int i = 0; i < _dataCommunicator.getItemCount(); i++) {
-      if (item == _dataCommunicator.getItem(i)) {
-        return i;
-      }
+  // one bulk update, so a single selection event and a single push
+  private void selectRange(ITEM fromItem, ITEM toItem) {
+    SortedIndex<ITEM> sortedIndex = getSortedIndex();
+    int position1 = sortedIndex.positionOf(fromItem);
+    int position2 = sortedIndex.positionOf(toItem);
+    if (position1 < 0 || position2 < 0) {
+      return;
     }
-    return -1;
+    Set<ITEM> items = new LinkedHashSet<>();
+    for (int position = Math.min(position1, position2); position <= Math.max(position1, position2); position++) {
+      items.add(sortedIndex.get(position));
+    }
+    _grid.asMultiSelect()
+         .updateSelection(items, Collections.emptySet());
+  }
+
+  // the rows in the order the grid shows them, taken from the view or column permutation the grid renders so ties
+  // fall the same way
+  private SortedIndex<ITEM> getSortedIndex() {
+    FilteredIndex<ITEM> filteredIndex = getDisplayIndex();
+    Comparator<ITEM> sorting = _dataCommunicator.getInMemorySorting();
+    SortedIndex<ITEM> sortedIndex = _sortedIndex;
+    if (sortedIndex == null || sortedIndex.getFilteredIndex() != filteredIndex || _sortedBy != sorting) {
+      _sortedIndex = sortedIndex = createSortedIndex(filteredIndex, sorting);
+      _sortedBy = sorting;
+    }
+    return sortedIndex;
   }
 
-  private void selectItemsBetweenForward(int firstItemIndex, int lastItemIndex) {
-    int itemCount = _dataCommunicator.getItemCount();
-    for (int i = firstItemIndex; i < lastItemIndex && i < itemCount; i++) {
-      ITEM item = _dataCommunicator.getItem(i);
-      _grid.select(item);
+  private SortedIndex<ITEM> createSortedIndex(FilteredIndex<ITEM> filteredIndex, Comparator<ITEM> sorting) {
+    ItemSnapshot<ITEM> snapshot = filteredIndex.getSnapshot();
+    List<QuerySortOrder> sortOrders = _dataCommunicator.getBackEndSorting();
+    Comparator<ITEM> defaultOrder = (o1, o2) -> o1.compareTo(o2);
+    if (_lazy) {
+      int[] permutation = _itemDataProvider.getSortPermutation(snapshot, sortOrders);
+      if (permutation != null) {
+        return SortedIndex.of(filteredIndex, permutation);
+      }
+      // the item manager sorts the filtered rows with the comparator alone
+      return SortedIndex.create(filteredIndex, sorting == null ? defaultOrder : sorting);
+    }
+    ItemListDataProvider.View<ITEM> view = _listDataProvider.getSortedView();
+    if (view != null && view.getSnapshot() == snapshot) {
+      return SortedIndex.of(filteredIndex, view.getRows());
     }
+    int[] permutation = _listDataProvider.getSortPermutation(snapshot, sortOrders);
+    if (permutation != null) {
+      return SortedIndex.of(filteredIndex, permutation);
+    }
+    // the list data provider breaks the ties of the grid comparator with its own
+    return SortedIndex.create(filteredIndex, sorting == null ? defaultOrder : sorting.thenComparing(defaultOrder));
   }
 
   private ITEM getFirstItem(Set<ITEM> items) {
@@ -641,8 +1002,4 @@ public abstract class BasePushView<ITEM extends Item<ITEM>> extends Div implemen
                 .next();
   }
 
-  private <T> Class<T> getItemClass() {
-    return ClassHelper.getItemClass(BasePushView.class, getClass());
-  }
-
 }
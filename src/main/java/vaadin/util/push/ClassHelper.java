@@ -2,15 +2,30 @@ package vaadin.util.push;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ClassHelper {
 
+  // the type argument never changes for a class, keyed by class then base class
+  private static final ClassValue<Map<Class<?>, Class<?>>> ITEM_CLASSES = new ClassValue<Map<Class<?>, Class<?>>>() {
+    @Override
+    protected Map<Class<?>, Class<?>> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
   @SuppressWarnings("unchecked")
   public static <T> Class<T> getItemClass(Class<?> baseClass, Class<?> cls) {
+    return (Class<T>) ITEM_CLASSES.get(cls)
+                                  .computeIfAbsent(baseClass, key -> lookupItemClass(key, cls));
+  }
+
+  private static Class<?> lookupItemClass(Class<?> baseClass, Class<?> cls) {
     Class<?> clazz = getClassRequiredForTypeLookup(baseClass, cls);
     Type genericSuperclass = clazz.getGenericSuperclass();
     ParameterizedType parameterizedType = (ParameterizedType) genericSuperclass;
-    return (Class<T>) parameterizedType.getActualTypeArguments()[0];
+    return (Class<?>) parameterizedType.getActualTypeArguments()[0];
   }
 
   private static Class<?> getClassRequiredForTypeLookup(Class<?> baseClass, Class<?> cls) {
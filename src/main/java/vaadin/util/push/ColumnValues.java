@@ -0,0 +1,268 @@
+package vaadin.util.push;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// the value and rendered text of one column for each row of a snapshot, filled in as rows are asked for
+public class ColumnValues<ITEM> {
+
+  private static final Object NULL = new Object();
+  private static final Comparator<Comparable<Object>> SORT_KEY_COMPARATOR = Comparator.nullsLast(
+      Comparator.naturalOrder());
+
+  private final ItemSnapshot<ITEM> _snapshot;
+  private final Function<ITEM, ?> _valueFunction;
+  private final Object[] _values;
+  private final String[] _rendered;
+  private final ColumnValues<ITEM> _previous;
+  // set when the value function can produce the primitive, which sorts without the boxed values
+  private final ToLongFunction<ITEM> _longFunction;
+  private final ToDoubleFunction<ITEM> _doubleFunction;
+  private volatile Comparable<Object>[] _sortKeys;
+  private volatile long[] _longKeys;
+  private volatile double[] _doubleKeys;
+  private volatile int[] _ascending;
+  private volatile int[] _descending;
+
+  ColumnValues(ItemSnapshot<ITEM> snapshot, Function<ITEM, ?> valueFunction, ColumnValues<ITEM> previous) {
+    _snapshot = snapshot;
+    _valueFunction = valueFunction;
+    _values = new Object[snapshot.size()];
+    _rendered = new String[snapshot.size()];
+    // only one snapshot back, unchanged items are the same instance there
+    _previous = previous == null ? null : previous.withoutPrevious();
+    _longFunction = toLongFunction(valueFunction);
+    _doubleFunction = toDoubleFunction(valueFunction);
+  }
+
+  private ColumnValues(ColumnValues<ITEM> columnValues) {
+    _snapshot = columnValues._snapshot;
+    _valueFunction = columnValues._valueFunction;
+    _values = columnValues._values;
+    _rendered = columnValues._rendered;
+    _previous = null;
+    _longFunction = columnValues._longFunction;
+    _doubleFunction = columnValues._doubleFunction;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <ITEM> ToLongFunction<ITEM> toLongFunction(Function<ITEM, ?> valueFunction) {
+    return valueFunction instanceof ToLongFunction ? (ToLongFunction<ITEM>) valueFunction : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <ITEM> ToDoubleFunction<ITEM> toDoubleFunction(Function<ITEM, ?> valueFunction) {
+    return valueFunction instanceof ToDoubleFunction ? (ToDoubleFunction<ITEM>) valueFunction : null;
+  }
+
+  private ColumnValues<ITEM> withoutPrevious() {
+    return _previous == null ? this : new ColumnValues<>(this);
+  }
+
+  public long getGeneration() {
+    return _snapshot.getGeneration();
+  }
+
+  public ItemSnapshot<ITEM> getSnapshot() {
+    return _snapshot;
+  }
+
+  public Object getValue(ITEM item) {
+    int row = rowOf(item);
+    if (row < 0) {
+      return _valueFunction.apply(item);
+    }
+    return unwrap(getValue(row, item));
+  }
+
+  public String getRendered(ITEM item) {
+    int row = rowOf(item);
+    if (row < 0) {
+      return render(_valueFunction.apply(item));
+    }
+    return getRendered(row, item);
+  }
+
+  private String getRendered(int row, ITEM item) {
+    String rendered = _rendered[row];
+    if (rendered == null) {
+      rendered = _previous == null ? null : _previous.getCachedRendered(item);
+      if (rendered == null) {
+        rendered = render(unwrap(getValue(row, item)));
+      }
+      // a racing thread computes the same value, so the unsynchronized write is harmless
+      _rendered[row] = rendered;
+    }
+    return rendered;
+  }
+
+  // comparable values sort as they are, anything else by its rendered text
+  @SuppressWarnings("unchecked")
+  public Comparable<Object> getSortKey(ITEM item) {
+    Object value = getValue(item);
+    Object key = value == null || value instanceof Comparable ? value : getRendered(item);
+    return (Comparable<Object>) key;
+  }
+
+  public int compare(ITEM o1, ITEM o2) {
+    if (_longFunction != null) {
+      return Long.compare(_longFunction.applyAsLong(o1), _longFunction.applyAsLong(o2));
+    } else if (_doubleFunction != null) {
+      return Double.compare(_doubleFunction.applyAsDouble(o1), _doubleFunction.applyAsDouble(o2));
+    }
+    return SORT_KEY_COMPARATOR.compare(getSortKey(o1), getSortKey(o2));
+  }
+
+  // snapshot rows ordered by this column, rows with equal values keep their snapshot order
+  public int[] getPermutation(boolean descending) {
+    int[] permutation = descending ? _descending : _ascending;
+    if (permutation == null) {
+      RowSort.RowComparator comparator = getRowComparator();
+      int sign = descending ? -1 : 1;
+      permutation = IntStream.range(0, _snapshot.size())
+                             .toArray();
+      RowSort.sort(permutation, (row1, row2) -> sign * comparator.compare(row1, row2));
+      if (descending) {
+        _descending = permutation;
+      } else {
+        _ascending = permutation;
+      }
+    }
+    return permutation;
+  }
+
+  public Stream<ITEM> stream(boolean descending) {
+    return IntStream.of(getPermutation(descending))
+                    .mapToObj(_snapshot::get);
+  }
+
+  // walks the permutation against the filter bitmap, so a page never sorts the filtered rows
+  public List<ITEM> getPage(FilteredIndex<ITEM> filteredIndex, boolean descending, int offset, int limit) {
+    if (filteredIndex.getSnapshot() != _snapshot) {
+      throw new IllegalArgumentException("Filtered index is not of generation " + getGeneration());
+    }
+    List<ITEM> page = new ArrayList<>(Math.max(0, Math.min(limit, filteredIndex.size() - offset)));
+    int skipped = 0;
+    for (int row : getPermutation(descending)) {
+      if (page.size() >= limit) {
+        break;
+      }
+      if (filteredIndex.containsRow(row)) {
+        if (skipped < offset) {
+          skipped++;
+        } else {
+          page.add(_snapshot.get(row));
+        }
+      }
+    }
+    return page;
+  }
+
+  private RowSort.RowComparator getRowComparator() {
+    if (_longFunction != null) {
+      long[] keys = getLongKeys();
+      return (row1, row2) -> Long.compare(keys[row1], keys[row2]);
+    } else if (_doubleFunction != null) {
+      double[] keys = getDoubleKeys();
+      return (row1, row2) -> Double.compare(keys[row1], keys[row2]);
+    }
+    Comparable<Object>[] keys = getSortKeys();
+    return (row1, row2) -> SORT_KEY_COMPARATOR.compare(keys[row1], keys[row2]);
+  }
+
+  // the keys are read in parallel, so value functions must be thread safe
+  private long[] getLongKeys() {
+    long[] longKeys = _longKeys;
+    if (longKeys == null) {
+      long[] keys = new long[_snapshot.size()];
+      IntStream.range(0, keys.length)
+               .parallel()
+               .forEach(row -> keys[row] = _longFunction.applyAsLong(_snapshot.get(row)));
+      _longKeys = longKeys = keys;
+    }
+    return longKeys;
+  }
+
+  private double[] getDoubleKeys() {
+    double[] doubleKeys = _doubleKeys;
+    if (doubleKeys == null) {
+      double[] keys = new double[_snapshot.size()];
+      IntStream.range(0, keys.length)
+               .parallel()
+               .forEach(row -> keys[row] = _doubleFunction.applyAsDouble(_snapshot.get(row)));
+      _doubleKeys = doubleKeys = keys;
+    }
+    return doubleKeys;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Comparable<Object>[] getSortKeys() {
+    Comparable<Object>[] sortKeys = _sortKeys;
+    if (sortKeys == null) {
+      Comparable<Object>[] keys = new Comparable[_snapshot.size()];
+      IntStream.range(0, keys.length)
+               .parallel()
+               .forEach(row -> keys[row] = getSortKey(row));
+      _sortKeys = sortKeys = keys;
+    }
+    return sortKeys;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Comparable<Object> getSortKey(int row) {
+    ITEM item = _snapshot.get(row);
+    Object value = unwrap(getValue(row, item));
+    Object key = value == null || value instanceof Comparable ? value : getRendered(row, item);
+    return (Comparable<Object>) key;
+  }
+
+  private Object getValue(int row, ITEM item) {
+    Object value = _values[row];
+    if (value == null) {
+      value = _previous == null ? null : _previous.getCachedValue(item);
+      if (value == null) {
+        value = wrap(_valueFunction.apply(item));
+      }
+      _values[row] = value;
+    }
+    return value;
+  }
+
+  private Object getCachedValue(ITEM item) {
+    int row = rowOf(item);
+    return row < 0 ? null : _values[row];
+  }
+
+  private String getCachedRendered(ITEM item) {
+    int row = rowOf(item);
+    return row < 0 ? null : _rendered[row];
+  }
+
+  // only the exact instance in the snapshot can use the cached values
+  private int rowOf(ITEM item) {
+    int row = _snapshot.indexOf(item);
+    if (row < 0 || _snapshot.get(row) != item) {
+      return -1;
+    }
+    return row;
+  }
+
+  private static Object wrap(Object value) {
+    return value == null ? NULL : value;
+  }
+
+  private static Object unwrap(Object value) {
+    return value == NULL ? null : value;
+  }
+
+  private static String render(Object value) {
+    return value == null ? null : value.toString();
+  }
+
+}
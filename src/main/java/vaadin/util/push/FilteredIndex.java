@@ -0,0 +1,186 @@
+package vaadin.util.push;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class FilteredIndex<ITEM> {
+
+  public static final String PARALLEL_THRESHOLD_PROPERTY = "vaadin.util.push.parallelThreshold";
+  public static final String CHUNK_SIZE_PROPERTY = "vaadin.util.push.parallelChunkSize";
+
+  private static final int PARALLEL_THRESHOLD = Integer.getInteger(PARALLEL_THRESHOLD_PROPERTY, 50_000);
+  private static final int CHUNK_SIZE = Math.max(64, Integer.getInteger(CHUNK_SIZE_PROPERTY, 8192) / 64 * 64);
+
+  private final ItemSnapshot<ITEM> _snapshot;
+  private final Predicate<ITEM> _predicate;
+  private final BitSet _bitSet;
+  private final int[] _rows;
+  private volatile Derived<ITEM> _derived;
+
+  private static class Derived<ITEM> {
+    final Predicate<ITEM> predicate;
+    final FilteredIndex<ITEM> filteredIndex;
+
+    Derived(Predicate<ITEM> predicate, FilteredIndex<ITEM> filteredIndex) {
+      this.predicate = predicate;
+      this.filteredIndex = filteredIndex;
+    }
+  }
+
+  private FilteredIndex(ItemSnapshot<ITEM> snapshot, Predicate<ITEM> predicate, BitSet bitSet) {
+    _snapshot = snapshot;
+    _predicate = predicate;
+    _bitSet = bitSet;
+    _rows = bitSet.stream()
+                  .toArray();
+  }
+
+  public static <ITEM> FilteredIndex<ITEM> all(ItemSnapshot<ITEM> snapshot) {
+    BitSet bitSet = new BitSet(snapshot.size());
+    bitSet.set(0, snapshot.size());
+    return new FilteredIndex<>(snapshot, t -> true, bitSet);
+  }
+
+  public static <ITEM> FilteredIndex<ITEM> create(ItemSnapshot<ITEM> snapshot, Predicate<ITEM> predicate) {
+    return new FilteredIndex<>(snapshot, predicate, filter(snapshot, predicate, null, snapshot.size()));
+  }
+
+  public static <ITEM> FilteredIndex<ITEM> create(ItemSnapshot<ITEM> snapshot, BitSet candidates,
+      Predicate<ITEM> predicate) {
+    return create(snapshot, candidates, predicate, predicate);
+  }
+
+  // residual is evaluated on the candidates, predicate is what the index represents
+  public static <ITEM> FilteredIndex<ITEM> create(ItemSnapshot<ITEM> snapshot, BitSet candidates,
+      Predicate<ITEM> residual, Predicate<ITEM> predicate) {
+    return new FilteredIndex<>(snapshot, predicate, filter(snapshot, residual, candidates, candidates.cardinality()));
+  }
+
+  public static <ITEM> FilteredIndex<ITEM> of(ItemSnapshot<ITEM> snapshot, BitSet bitSet, Predicate<ITEM> predicate) {
+    return new FilteredIndex<>(snapshot, predicate, bitSet);
+  }
+
+  public FilteredIndex<ITEM> and(Predicate<ITEM> predicate) {
+    Derived<ITEM> derived = _derived;
+    if (derived != null && derived.predicate == predicate) {
+      return derived.filteredIndex;
+    }
+    BitSet bitSet = filter(_snapshot, predicate, _bitSet, _rows.length);
+    FilteredIndex<ITEM> filteredIndex = new FilteredIndex<>(_snapshot, _predicate.and(predicate), bitSet);
+    _derived = new Derived<>(predicate, filteredIndex);
+    return filteredIndex;
+  }
+
+  public ItemSnapshot<ITEM> getSnapshot() {
+    return _snapshot;
+  }
+
+  public long getGeneration() {
+    return _snapshot.getGeneration();
+  }
+
+  public int size() {
+    return _rows.length;
+  }
+
+  public ITEM get(int index) {
+    return _snapshot.get(_rows[index]);
+  }
+
+  public int getRow(int index) {
+    return _rows[index];
+  }
+
+  public BitSet getBitSet() {
+    return (BitSet) _bitSet.clone();
+  }
+
+  public boolean containsRow(int row) {
+    return _bitSet.get(row);
+  }
+
+  public boolean test(ITEM item) {
+    int row = _snapshot.indexOf(item);
+    if (row < 0) {
+      // not part of this snapshot, evaluate directly
+      return _predicate.test(item);
+    }
+    return _bitSet.get(row);
+  }
+
+  public Stream<ITEM> stream() {
+    return IntStream.of(_rows)
+                    .mapToObj(_snapshot::get);
+  }
+
+  private static <ITEM> BitSet filter(ItemSnapshot<ITEM> snapshot, Predicate<ITEM> predicate, BitSet candidates,
+      int work) {
+    int size = snapshot.size();
+    long[] words = new long[(size + 63) / 64];
+    FilterTask<ITEM> task = new FilterTask<>(snapshot, predicate, candidates, words, 0, size);
+    if (work >= PARALLEL_THRESHOLD) {
+      ForkJoinPool.commonPool()
+                  .invoke(task);
+    } else {
+      task.filter();
+    }
+    return BitSet.valueOf(words);
+  }
+
+  private static class FilterTask<ITEM> extends RecursiveAction {
+
+    private static final long serialVersionUID = 4379143260896413735L;
+
+    private final ItemSnapshot<ITEM> _snapshot;
+    private final Predicate<ITEM> _predicate;
+    private final BitSet _candidates;
+    private final long[] _words;
+    private final int _start;
+    private final int _end;
+
+    FilterTask(ItemSnapshot<ITEM> snapshot, Predicate<ITEM> predicate, BitSet candidates, long[] words, int start,
+        int end) {
+      _snapshot = snapshot;
+      _predicate = predicate;
+      _candidates = candidates;
+      _words = words;
+      _start = start;
+      _end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (_end - _start <= CHUNK_SIZE) {
+        filter();
+        return;
+      }
+      int middle = _start + Math.max(CHUNK_SIZE, (_end - _start) / 2 / CHUNK_SIZE * CHUNK_SIZE);
+      invokeAll(new FilterTask<>(_snapshot, _predicate, _candidates, _words, _start, middle),
+          new FilterTask<>(_snapshot, _predicate, _candidates, _words, middle, _end));
+    }
+
+    // chunks are word aligned so each task owns its range of words
+    void filter() {
+      if (_candidates == null) {
+        for (int row = _start; row < _end; row++) {
+          test(row);
+        }
+      } else {
+        for (int row = _candidates.nextSetBit(_start); row >= 0 && row < _end; row = _candidates.nextSetBit(row + 1)) {
+          test(row);
+        }
+      }
+    }
+
+    private void test(int row) {
+      if (_predicate.test(_snapshot.get(row))) {
+        _words[row >>> 6] |= 1L << row;
+      }
+    }
+  }
+
+}
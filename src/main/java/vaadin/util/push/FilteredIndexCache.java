@@ -0,0 +1,64 @@
+package vaadin.util.push;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class FilteredIndexCache<ITEM> {
+
+  public static final String MAX_ENTRIES_PROPERTY = "vaadin.util.push.filteredIndexCacheSize";
+
+  private final Map<ItemQuery, FilteredIndex<ITEM>> _cache;
+  private long _generation = -1;
+
+  public FilteredIndexCache() {
+    this(Integer.getInteger(MAX_ENTRIES_PROPERTY, 32));
+  }
+
+  public FilteredIndexCache(int maxEntries) {
+    _cache = new LinkedHashMap<ItemQuery, FilteredIndex<ITEM>>(16, 0.75f, true) {
+      private static final long serialVersionUID = -2581313318302738337L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ItemQuery, FilteredIndex<ITEM>> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  public FilteredIndex<ITEM> get(ItemSnapshot<ITEM> snapshot, ItemQuery itemQuery,
+      Supplier<FilteredIndex<ITEM>> supplier) {
+    synchronized (_cache) {
+      // a stale snapshot never moves the generation back, that would throw away the current entries
+      if (_generation < snapshot.getGeneration()) {
+        _cache.clear();
+        _generation = snapshot.getGeneration();
+      }
+      if (_generation == snapshot.getGeneration()) {
+        FilteredIndex<ITEM> filteredIndex = _cache.get(itemQuery);
+        if (filteredIndex != null) {
+          return filteredIndex;
+        }
+      }
+    }
+    FilteredIndex<ITEM> filteredIndex = supplier.get();
+    synchronized (_cache) {
+      // indexes of stale snapshots are not cached
+      if (_generation == snapshot.getGeneration()) {
+        _cache.put(itemQuery, filteredIndex);
+      }
+    }
+    log.debug("filtered index for {} built with {} of {} items", itemQuery, filteredIndex.size(), snapshot.size());
+    return filteredIndex;
+  }
+
+  public void clear() {
+    synchronized (_cache) {
+      _cache.clear();
+    }
+  }
+
+}
@@ -1,10 +1,17 @@
 package vaadin.util.push;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.ComponentEventListener;
@@ -18,6 +25,8 @@ import com.vaadin.flow.data.provider.DataProvider;
 import com.vaadin.flow.data.provider.InMemoryDataProvider;
 import com.vaadin.flow.data.provider.ListDataProvider;
 import com.vaadin.flow.data.value.ValueChangeMode;
+import com.vaadin.flow.function.SerializableBiConsumer;
+import com.vaadin.flow.function.SerializableConsumer;
 import com.vaadin.flow.function.SerializablePredicate;
 import com.vaadin.flow.function.ValueProvider;
 import com.vaadin.flow.router.HasUrlParameter;
@@ -29,14 +38,29 @@ import lombok.extern.slf4j.Slf4j;
 public class GridBuilder<T> {
 
   private static final String YYYY_MM_DD_HH_MM_SS = "yyyy'-'MM'-'dd' 'HH':'mm':'ss";
+  // immutable, the values are read from parallel sort key builds
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(YYYY_MM_DD_HH_MM_SS);
   private static final String FILTER = "filter";
+  private static final String CASE_INSENSITIVE = "(?i)";
+  private static final String REGEX_CHARS = "\\^$.|?*+()[]{}";
 
   private final Grid<T> _grid;
   private final List<ColumnDef<T, ?>> _columnDefs = new ArrayList<>();
+  private final SerializableConsumer<SerializablePredicate<T>> _filterSetter;
+  private final ItemManager<T> _itemManager;
+  private final SerializableBiConsumer<String, Function<T, ?>> _sortColumnSetter;
   private SerializablePredicate<T> _filter;
 
-  private GridBuilder(Grid<T> grid, InMemoryDataProvider<T> dataProvider) {
+  private GridBuilder(Grid<T> grid, SerializableConsumer<SerializablePredicate<T>> filterSetter) {
+    this(grid, filterSetter, null, null);
+  }
+
+  private GridBuilder(Grid<T> grid, SerializableConsumer<SerializablePredicate<T>> filterSetter,
+      ItemManager<T> itemManager, SerializableBiConsumer<String, Function<T, ?>> sortColumnSetter) {
     _grid = grid;
+    _filterSetter = filterSetter;
+    _itemManager = itemManager;
+    _sortColumnSetter = sortColumnSetter;
   }
 
   public static <T> GridBuilder<T> create(List<T> list) {
@@ -48,14 +72,32 @@ public class GridBuilder<T> {
   }
 
   public static <T> GridBuilder<T> create(ListDataProvider<T> dataProvider) {
+    return create(dataProvider, dataProvider::setFilter);
+  }
+
+  public static <T> GridBuilder<T> create(ListDataProvider<T> dataProvider,
+      SerializableConsumer<SerializablePredicate<T>> filterSetter) {
     Grid<T> grid = new Grid<>();
     grid.setHeight("90vh");
     grid.setItems(dataProvider);
-    return create(grid, dataProvider);
+    if (dataProvider instanceof ItemListDataProvider) {
+      ItemListDataProvider<T> itemListDataProvider = (ItemListDataProvider<T>) dataProvider;
+      return new GridBuilder<>(grid, filterSetter, itemListDataProvider.getItemManager(),
+          itemListDataProvider::addSortColumn);
+    }
+    return new GridBuilder<>(grid, filterSetter);
+  }
+
+  public static <T> GridBuilder<T> create(ItemDataProvider<T> dataProvider) {
+    Grid<T> grid = new Grid<>();
+    grid.setHeight("90vh");
+    grid.setDataProvider(dataProvider);
+    return new GridBuilder<>(grid, dataProvider::setFilter, dataProvider.getItemManager(),
+        dataProvider::addSortColumn);
   }
 
   public static <T> GridBuilder<T> create(Grid<T> grid, InMemoryDataProvider<T> dataProvider) {
-    return new GridBuilder<>(grid, dataProvider);
+    return new GridBuilder<>(grid, dataProvider::setFilter);
   }
 
   public <N extends Component> GridBuilder<T> addDate(String header, ValueProvider<T, Date> valueProvider) {
@@ -74,6 +116,19 @@ public class GridBuilder<T> {
     return this;
   }
 
+  public GridBuilder<T> addInt(String header, ToIntFunction<T> function) {
+    return addLong(header, t -> function.applyAsInt(t));
+  }
+
+  // numeric columns sort on the primitive value, only rendering boxes it
+  public GridBuilder<T> addLong(String header, ToLongFunction<T> function) {
+    return add(header, new LongValueProvider<>(function));
+  }
+
+  public GridBuilder<T> addDouble(String header, ToDoubleFunction<T> function) {
+    return add(header, new DoubleValueProvider<>(function));
+  }
+
   public <N extends Component, C extends Component> GridBuilder<T> addComponentColumn(String header,
       ValueProvider<T, C> valueProvider) {
     ColumnDef<T, N> columnDef = new ColumnDef<T, N>();
@@ -87,7 +142,6 @@ public class GridBuilder<T> {
   private ValueProvider<T, String> formatDate(ValueProvider<T, Date> valueProvider) {
     return new ValueProvider<T, String>() {
       private static final long serialVersionUID = 2438298511206864923L;
-      private final SimpleDateFormat format = new SimpleDateFormat(YYYY_MM_DD_HH_MM_SS);
 
       @Override
       public String apply(T source) {
@@ -95,7 +149,8 @@ public class GridBuilder<T> {
         if (date == null) {
           return null;
         }
-        return format.format(date);
+        return DATE_FORMATTER.format(Instant.ofEpochMilli(date.getTime())
+                                            .atZone(ZoneId.systemDefault()));
       }
     };
   }
@@ -118,20 +173,28 @@ public class GridBuilder<T> {
     return this;
   }
 
-  @SuppressWarnings("unchecked")
   public Grid<T> build() {
     for (ColumnDef<T, ?> columnDef : _columnDefs) {
       if (columnDef.componentColumn) {
         columnDef.column = createComponentColumn(_grid, columnDef.header, cast(columnDef.valueProvider));
+      } else if (_itemManager != null) {
+        // rendering, sorting and column filters all read the manager's per snapshot column values
+        columnDef.itemManager = _itemManager;
+        columnDef.column = createColumn(_grid, columnDef.header, columnDef::render);
+        columnDef.column.setComparator(columnDef::compare);
+        _sortColumnSetter.accept(columnDef.header, columnDef.valueProvider);
       } else {
         columnDef.column = createColumn(_grid, columnDef.header, columnDef.valueProvider);
+        if (columnDef.valueProvider instanceof PrimitiveValueProvider) {
+          columnDef.column.setComparator(((PrimitiveValueProvider<T, ?>) columnDef.valueProvider)::compare);
+        }
       }
       columnDef.column.setAutoWidth(true);
       columnDef.column.setResizable(true);
       columnDef.column.setKey(columnDef.header);
     }
     HeaderRow filterRow = _grid.appendHeaderRow();
-    addFilters(_grid, _columnDefs, filterRow, _filter);
+    addFilters(_columnDefs, filterRow, _filter, _filterSetter);
     ComponentEventListener<ItemClickEvent<T>> listener = event -> {
       Column<T> column = event.getColumn();
       if (column == null) {
@@ -150,8 +213,7 @@ public class GridBuilder<T> {
       }
     };
     if (_filter != null) {
-      InMemoryDataProvider<T> dataProvider = (InMemoryDataProvider<T>) _grid.getDataProvider();
-      dataProvider.setFilter(_filter);
+      _filterSetter.accept(_filter);
     }
     _grid.addItemClickListener(listener);
     return _grid;
@@ -168,11 +230,92 @@ public class GridBuilder<T> {
     ValueProvider<T, ?> valueProvider;
     Column<T> column;
     Class<? extends N> navigationTarget;
+    ItemManager<T> itemManager;
+    private volatile ColumnValues<T> _columnValues;
+
+    // only the columns of an item manager cache their text, by snapshot row, items of other grids may change
+    String render(T t) {
+      if (itemManager != null) {
+        return getColumnValues().getRendered(t);
+      }
+      Object value = valueProvider.apply(t);
+      return value == null ? null : value.toString();
+    }
+
+    int compare(T o1, T o2) {
+      return getColumnValues().compare(o1, o2);
+    }
+
+    private ColumnValues<T> getColumnValues() {
+      ColumnValues<T> columnValues = _columnValues;
+      if (columnValues == null || columnValues.getGeneration() != itemManager.getGeneration()) {
+        _columnValues = columnValues = itemManager.getColumnValues(valueProvider);
+      }
+      return columnValues;
+    }
+  }
+
+  private abstract static class PrimitiveValueProvider<T, V> implements ValueProvider<T, V> {
+    private static final long serialVersionUID = -5216512386730215468L;
+
+    abstract int compare(T o1, T o2);
+  }
+
+  private static class LongValueProvider<T> extends PrimitiveValueProvider<T, Long> implements ToLongFunction<T> {
+    private static final long serialVersionUID = 6091651839311851375L;
+
+    private final ToLongFunction<T> _function;
+
+    LongValueProvider(ToLongFunction<T> function) {
+      _function = function;
+    }
+
+    @Override
+    public Long apply(T source) {
+      return _function.applyAsLong(source);
+    }
+
+    @Override
+    public long applyAsLong(T source) {
+      return _function.applyAsLong(source);
+    }
+
+    @Override
+    int compare(T o1, T o2) {
+      return Long.compare(_function.applyAsLong(o1), _function.applyAsLong(o2));
+    }
+  }
+
+  private static class DoubleValueProvider<T> extends PrimitiveValueProvider<T, Double>
+      implements ToDoubleFunction<T> {
+    private static final long serialVersionUID = -1453986230518530716L;
+
+    private final ToDoubleFunction<T> _function;
+
+    DoubleValueProvider(ToDoubleFunction<T> function) {
+      _function = function;
+    }
+
+    @Override
+    public Double apply(T source) {
+      return _function.applyAsDouble(source);
+    }
+
+    @Override
+    public double applyAsDouble(T source) {
+      return _function.applyAsDouble(source);
+    }
+
+    @Override
+    int compare(T o1, T o2) {
+      return Double.compare(_function.applyAsDouble(o1), _function.applyAsDouble(o2));
+    }
   }
 
   public static <T> Column<T> createColumn(Grid<T> grid, String header, ValueProvider<T, ?> valueProvider) {
     return grid.addColumn(valueProvider)
                .setSortable(true)
+               .setSortProperty(header)
                .setHeader(header);
   }
 
@@ -187,17 +330,35 @@ public class GridBuilder<T> {
   public static <T> void addFilters(Grid<T> grid, List<ColumnDef<T, ?>> columnDefs, HeaderRow filterRow,
       SerializablePredicate<T> filter) {
     InMemoryDataProvider<T> dataProvider = (InMemoryDataProvider<T>) grid.getDataProvider();
-    List<TextField> textFields = new ArrayList<>();
+    addFilters(columnDefs, filterRow, filter, dataProvider::setFilter);
+  }
+
+  public static <T> void addFilters(List<ColumnDef<T, ?>> columnDefs, HeaderRow filterRow,
+      SerializablePredicate<T> filter, SerializableConsumer<SerializablePredicate<T>> filterSetter) {
+    // compiled when the text of the column's filter changes, null while it is empty
+    List<ColumnMatcher> matchers = new ArrayList<>();
     for (ColumnDef<T, ?> columnDef : columnDefs) {
+      int index = matchers.size();
+      matchers.add(null);
       Column<T> column = columnDef.column;
       TextField textField = new TextField();
       textField.addValueChangeListener(event -> {
+        String filterValue = textField.getValue();
+        try {
+          matchers.set(index, filterValue == null || filterValue.isEmpty() ? null : compileMatcher(filterValue));
+        } catch (PatternSyntaxException e) {
+          // the column keeps the last filter that compiled
+          textField.setErrorMessage(e.getDescription());
+          textField.setInvalid(true);
+          return;
+        }
+        textField.setInvalid(false);
         log.debug("Building new predicate and setting data provider filter");
-        SerializablePredicate<T> predicate = buildPredicate(textFields, columnDefs);
+        SerializablePredicate<T> predicate = buildPredicate(matchers, columnDefs);
         if (filter != null) {
-          dataProvider.setFilter(t -> filter.test(t) && predicate.test(t));
+          filterSetter.accept(t -> filter.test(t) && predicate.test(t));
         } else {
-          dataProvider.setFilter(predicate);
+          filterSetter.accept(predicate);
         }
       });
       textField.setValueChangeMode(ValueChangeMode.LAZY);
@@ -205,34 +366,20 @@ public class GridBuilder<T> {
                .setComponent(textField);
       textField.setSizeFull();
       textField.setPlaceholder(FILTER);
-      textFields.add(textField);
     }
   }
 
-  private static <T> SerializablePredicate<T> buildPredicate(List<TextField> textFields,
+  private static <T> SerializablePredicate<T> buildPredicate(List<ColumnMatcher> matchers,
       List<ColumnDef<T, ?>> columnDefs) {
     List<ExecuteFilter<T>> executeFilters = new ArrayList<>();
-    for (int i = 0; i < textFields.size(); i++) {
-      TextField textField = textFields.get(i);
-      String filterValue = textField.getValue();
-      if (filterValue != null && !filterValue.isEmpty()) {
+    for (int i = 0; i < matchers.size(); i++) {
+      ColumnMatcher matcher = matchers.get(i);
+      if (matcher != null) {
         ColumnDef<T, ?> columnDef = columnDefs.get(i);
-        Pattern pattern = Pattern.compile(filterValue);
-        ExecuteFilter<T> executeFilter = new ExecuteFilter<T>() {
-
-          final ValueProvider<T, ?> _valueProvider = columnDef.valueProvider;
-
-          @Override
-          public boolean execute(T t) {
-            Object value = _valueProvider.apply(t);
-            if (value == null) {
-              return false;
-            }
-            return pattern.matcher(value.toString())
-                          .find();
-          }
-        };
-        executeFilters.add(executeFilter);
+        executeFilters.add(t -> {
+          String value = columnDef.render(t);
+          return value != null && matcher.matches(value);
+        });
       }
     }
 
@@ -246,8 +393,46 @@ public class GridBuilder<T> {
     };
   }
 
+  // plain text skips the regex engine, text that does not compile throws
+  private static ColumnMatcher compileMatcher(String filterValue) {
+    boolean caseInsensitive = filterValue.startsWith(CASE_INSENSITIVE);
+    String literal = caseInsensitive ? filterValue.substring(CASE_INSENSITIVE.length()) : filterValue;
+    if (isLiteral(literal)) {
+      if (caseInsensitive) {
+        return value -> containsIgnoreCase(value, literal);
+      }
+      return value -> value.contains(literal);
+    }
+    Pattern pattern = Pattern.compile(filterValue);
+    return value -> pattern.matcher(value)
+                           .find();
+  }
+
+  private static boolean isLiteral(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (REGEX_CHARS.indexOf(s.charAt(i)) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsIgnoreCase(String value, String literal) {
+    int length = literal.length();
+    for (int i = 0; i <= value.length() - length; i++) {
+      if (value.regionMatches(true, i, literal, 0, length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private interface ExecuteFilter<T> {
     boolean execute(T t);
   }
 
+  private interface ColumnMatcher {
+    boolean matches(String value);
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package vaadin.util.push;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.function.SerializableComparator;
+import com.vaadin.flow.function.SerializablePredicate;
+import com.vaadin.flow.function.SerializableSupplier;
+
+public class ItemDataProvider<ITEM> extends AbstractBackEndDataProvider<ITEM, Void> {
+
+  private static final long serialVersionUID = -4118504343716497383L;
+
+  private final ItemManager<ITEM> _itemManager;
+  private final SerializableSupplier<ItemQuery> _itemQuerySupplier;
+  private final SerializableComparator<ITEM> _sortComparator;
+  private SerializablePredicate<ITEM> _filter;
+  private final Map<String, Function<ITEM, ?>> _sortColumns = new ConcurrentHashMap<>();
+
+  public ItemDataProvider(ItemManager<ITEM> itemManager, SerializableSupplier<ItemQuery> itemQuerySupplier,
+      SerializableComparator<ITEM> sortComparator) {
+    _itemManager = itemManager;
+    _itemQuerySupplier = itemQuerySupplier;
+    _sortComparator = sortComparator;
+  }
+
+  public ItemManager<ITEM> getItemManager() {
+    return _itemManager;
+  }
+
+  // lets a sort on the property walk the shared column values of the value function
+  public void addSortColumn(String sortProperty, Function<ITEM, ?> valueFunction) {
+    _sortColumns.put(sortProperty, valueFunction);
+  }
+
+  // the order a sort on one column walks, null when the grid comparators sort instead
+  public int[] getSortPermutation(ItemSnapshot<ITEM> snapshot, List<QuerySortOrder> sortOrders) {
+    ColumnValues<ITEM> columnValues = _itemManager.getSortColumnValues(sortOrders, _sortColumns, snapshot);
+    return columnValues == null ? null : columnValues.getPermutation(ItemManager.isDescending(sortOrders));
+  }
+
+  public SerializablePredicate<ITEM> getFilter() {
+    return _filter;
+  }
+
+  public void setFilter(SerializablePredicate<ITEM> filter) {
+    _filter = filter;
+    refreshAll();
+  }
+
+  @Override
+  public Object getId(ITEM item) {
+    return _itemManager.getItemKey(item);
+  }
+
+  @Override
+  protected Stream<ITEM> fetchFromBackEnd(Query<ITEM, Void> query) {
+    return _itemManager.fetch(_itemQuerySupplier.get(), toItemManagerQuery(query), _sortColumns);
+  }
+
+  @Override
+  protected int sizeInBackEnd(Query<ITEM, Void> query) {
+    return _itemManager.count(_itemQuerySupplier.get(), toItemManagerQuery(query));
+  }
+
+  private Query<ITEM, SerializablePredicate<ITEM>> toItemManagerQuery(Query<ITEM, Void> query) {
+    SerializableComparator<ITEM> inMemorySorting = query.getInMemorySorting();
+    if (inMemorySorting == null) {
+      inMemorySorting = _sortComparator;
+    }
+    return new Query<>(query.getOffset(), query.getLimit(), query.getSortOrders(), inMemorySorting, _filter);
+  }
+
+}
@@ -0,0 +1,38 @@
+package vaadin.util.push;
+
+public class ItemDelta<ITEM> {
+
+  private final long _fromGeneration;
+  private final long _generation;
+  private final ItemDiff<ITEM> _diff;
+  // the rows of the previous snapshot kept their positions and the added items were appended
+  private final boolean _inPlace;
+
+  public ItemDelta(long fromGeneration, long generation, ItemDiff<ITEM> diff) {
+    this(fromGeneration, generation, diff, false);
+  }
+
+  public ItemDelta(long fromGeneration, long generation, ItemDiff<ITEM> diff, boolean inPlace) {
+    _fromGeneration = fromGeneration;
+    _generation = generation;
+    _diff = diff;
+    _inPlace = inPlace;
+  }
+
+  public long getFromGeneration() {
+    return _fromGeneration;
+  }
+
+  public long getGeneration() {
+    return _generation;
+  }
+
+  public ItemDiff<ITEM> getDiff() {
+    return _diff;
+  }
+
+  public boolean isInPlace() {
+    return _inPlace;
+  }
+
+}
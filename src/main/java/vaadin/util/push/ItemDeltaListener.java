@@ -0,0 +1,7 @@
+package vaadin.util.push;
+
+public interface ItemDeltaListener<ITEM> {
+
+  void onItemDelta(ItemDelta<ITEM> delta);
+
+}
@@ -0,0 +1,181 @@
+package vaadin.util.push;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Function;
+
+public class ItemDiff<ITEM> {
+
+  private static final Object REMOVED = new Object();
+
+  private final Function<ITEM, ?> _keyFunction;
+  private final List<ITEM> _added;
+  private final List<ITEM> _removed;
+  private final Map<Object, ITEM> _changed;
+  private final Map<Object, ITEM> _replaced;
+  private final Set<Object> _removedKeys;
+
+  private ItemDiff(Function<ITEM, ?> keyFunction, List<ITEM> added, List<ITEM> removed, Map<Object, ITEM> changed,
+      Map<Object, ITEM> replaced, Set<Object> removedKeys) {
+    _keyFunction = keyFunction;
+    _added = added;
+    _removed = removed;
+    _changed = changed;
+    _replaced = replaced;
+    _removedKeys = removedKeys;
+  }
+
+  public static <ITEM> ItemDiff<ITEM> diff(Collection<ITEM> currentItems, Collection<ITEM> dataItems) {
+    return diff(currentItems, dataItems, item -> item);
+  }
+
+  public static <ITEM> ItemDiff<ITEM> diff(Collection<ITEM> currentItems, Collection<ITEM> dataItems,
+      Function<ITEM, ?> keyFunction) {
+    Map<Object, ITEM> currentMap = new HashMap<>(capacity(currentItems.size()));
+    for (ITEM item : currentItems) {
+      currentMap.putIfAbsent(keyFunction.apply(item), item);
+    }
+    Map<Object, ITEM> dataMap = new LinkedHashMap<>(capacity(dataItems.size()));
+    for (ITEM item : dataItems) {
+      dataMap.putIfAbsent(keyFunction.apply(item), item);
+    }
+    List<ITEM> added = new ArrayList<>();
+    Map<Object, ITEM> changed = new HashMap<>();
+    Map<Object, ITEM> replaced = new HashMap<>();
+    for (Entry<Object, ITEM> entry : dataMap.entrySet()) {
+      ITEM item = entry.getValue();
+      ITEM current = currentMap.get(entry.getKey());
+      if (current == null) {
+        added.add(item);
+      } else if (current != item && !current.equals(item)) {
+        changed.put(entry.getKey(), item);
+        replaced.put(entry.getKey(), current);
+      }
+    }
+    List<ITEM> removed = new ArrayList<>();
+    Set<Object> removedKeys = new HashSet<>();
+    for (Entry<Object, ITEM> entry : currentMap.entrySet()) {
+      if (!dataMap.containsKey(entry.getKey())) {
+        removed.add(entry.getValue());
+        removedKeys.add(entry.getKey());
+      }
+    }
+    return new ItemDiff<>(keyFunction, added, removed, changed, replaced, removedKeys);
+  }
+
+  public static <ITEM> ItemDiff<ITEM> empty() {
+    return of(Collections.emptyList(), Collections.emptyList(), Collections.emptyMap());
+  }
+
+  // updated maps the previous value of an item to its new value
+  public static <ITEM> ItemDiff<ITEM> of(Collection<ITEM> added, Collection<ITEM> removed, Map<ITEM, ITEM> updated) {
+    return of(item -> item, added, removed, updated);
+  }
+
+  public static <ITEM> ItemDiff<ITEM> of(Function<ITEM, ?> keyFunction, Collection<ITEM> added,
+      Collection<ITEM> removed, Map<ITEM, ITEM> updated) {
+    Map<Object, ITEM> changed = new HashMap<>(capacity(updated.size()));
+    Map<Object, ITEM> replaced = new HashMap<>(capacity(updated.size()));
+    for (Entry<ITEM, ITEM> entry : updated.entrySet()) {
+      Object key = keyFunction.apply(entry.getKey());
+      changed.put(key, entry.getValue());
+      replaced.put(key, entry.getKey());
+    }
+    Set<Object> removedKeys = new HashSet<>(capacity(removed.size()));
+    for (ITEM item : removed) {
+      removedKeys.add(keyFunction.apply(item));
+    }
+    return new ItemDiff<>(keyFunction, new ArrayList<>(added), new ArrayList<>(removed), changed, replaced,
+        removedKeys);
+  }
+
+  public List<ITEM> getAdded() {
+    return Collections.unmodifiableList(_added);
+  }
+
+  public List<ITEM> getRemoved() {
+    return Collections.unmodifiableList(_removed);
+  }
+
+  public Collection<ITEM> getChanged() {
+    return Collections.unmodifiableCollection(_changed.values());
+  }
+
+  public Collection<ITEM> getReplaced() {
+    return Collections.unmodifiableCollection(_replaced.values());
+  }
+
+  public boolean isEmpty() {
+    return _added.isEmpty() && _removed.isEmpty() && _changed.isEmpty();
+  }
+
+  public void applyTo(Collection<ITEM> items) {
+    if (isEmpty()) {
+      return;
+    }
+    List<ITEM> result = new ArrayList<>(items.size() + _added.size());
+    for (ITEM item : items) {
+      Object key = _keyFunction.apply(item);
+      if (_removedKeys.contains(key)) {
+        continue;
+      }
+      ITEM changed = _changed.get(key);
+      result.add(changed == null ? item : changed);
+    }
+    result.addAll(_added);
+    items.clear();
+    items.addAll(result);
+  }
+
+  // applies the diffs in order with one pass over the items, the same result as applying them one at a time
+  public static <ITEM> List<ITEM> applyAll(List<ITEM> items, List<ItemDiff<ITEM>> diffs,
+      Function<ITEM, ?> keyFunction) {
+    // the latest item of a key present before the diffs, or REMOVED
+    Map<Object, Object> updates = new HashMap<>();
+    // the latest item of a key added by the diffs, in order of addition
+    Map<Object, ITEM> added = new LinkedHashMap<>();
+    for (ItemDiff<ITEM> diff : diffs) {
+      for (Object key : diff._removedKeys) {
+        added.remove(key);
+        updates.put(key, REMOVED);
+      }
+      for (Entry<Object, ITEM> entry : diff._changed.entrySet()) {
+        Object key = entry.getKey();
+        if (added.containsKey(key)) {
+          added.put(key, entry.getValue());
+        } else if (updates.get(key) != REMOVED) {
+          updates.put(key, entry.getValue());
+        }
+      }
+      for (ITEM item : diff._added) {
+        added.put(diff._keyFunction.apply(item), item);
+      }
+    }
+    List<ITEM> result = new ArrayList<>(items.size() + added.size());
+    for (ITEM item : items) {
+      Object update = updates.get(keyFunction.apply(item));
+      if (update == null) {
+        result.add(item);
+      } else if (update != REMOVED) {
+        @SuppressWarnings("unchecked")
+        ITEM changed = (ITEM) update;
+        result.add(changed);
+      }
+    }
+    result.addAll(added.values());
+    return result;
+  }
+
+  private static int capacity(int size) {
+    return Math.max(16, (int) (size / 0.75f) + 1);
+  }
+
+}
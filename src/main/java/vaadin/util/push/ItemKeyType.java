@@ -0,0 +1,24 @@
+package vaadin.util.push;
+
+public class ItemKeyType<TYPE> {
+
+  private final LambdaAccessor<TYPE, ?> _lambdaAccessor;
+
+  public ItemKeyType(Class<TYPE> clazz) {
+    _lambdaAccessor = ItemMetadataLoader.get(clazz)
+                                         .getItemKey();
+  }
+
+  public boolean hasKey() {
+    return _lambdaAccessor != null;
+  }
+
+  // without an @ItemKey the item is its own key
+  public Object getKey(TYPE t) {
+    if (_lambdaAccessor == null || t == null) {
+      return t;
+    }
+    return _lambdaAccessor.getValue(t);
+  }
+
+}
@@ -0,0 +1,239 @@
+package vaadin.util.push;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ImmutableList;
+import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.function.SerializableComparator;
+import com.vaadin.flow.function.SerializablePredicate;
+
+public class ItemListDataProvider<ITEM> extends ListDataProvider<ITEM> {
+
+  private static final long serialVersionUID = 2931857360218476120L;
+
+  private final ItemManager<ITEM> _itemManager;
+  private final SnapshotItems<ITEM> _items;
+  private final Map<String, Function<ITEM, ?>> _sortColumns = new ConcurrentHashMap<>();
+  private volatile ItemSnapshot<ITEM> _snapshot;
+  private volatile List<QuerySortOrder> _sortOrders = ImmutableList.of();
+  // a column sort without a sort property, only the grid comparator knows the order
+  private volatile boolean _comparatorSort;
+  private volatile View<ITEM> _view;
+
+  // the rows the grid shows for one snapshot, filter and sort, in display order
+  public static class View<ITEM> {
+    private final ItemSnapshot<ITEM> _snapshot;
+    private final SerializablePredicate<ITEM> _filter;
+    private final List<QuerySortOrder> _sortOrders;
+    private final int[] _rows;
+
+    private View(ItemSnapshot<ITEM> snapshot, SerializablePredicate<ITEM> filter, List<QuerySortOrder> sortOrders,
+        int[] rows) {
+      _snapshot = snapshot;
+      _filter = filter;
+      _sortOrders = sortOrders;
+      _rows = rows;
+    }
+
+    public ItemSnapshot<ITEM> getSnapshot() {
+      return _snapshot;
+    }
+
+    public int size() {
+      return _rows.length;
+    }
+
+    public ITEM get(int index) {
+      return _snapshot.get(_rows[index]);
+    }
+
+    int[] getRows() {
+      return _rows;
+    }
+
+    public Stream<ITEM> stream(int offset, int limit) {
+      int from = Math.min(offset, _rows.length);
+      int to = (int) Math.min((long) from + limit, _rows.length);
+      return IntStream.range(from, to)
+                      .mapToObj(this::get);
+    }
+  }
+
+  // the backing collection, swapped to a new snapshot's items without copying
+  private static class SnapshotItems<ITEM> extends AbstractCollection<ITEM> {
+    private volatile Collection<ITEM> _items;
+
+    SnapshotItems(Collection<ITEM> items) {
+      _items = items;
+    }
+
+    @Override
+    public Iterator<ITEM> iterator() {
+      return _items.iterator();
+    }
+
+    @Override
+    public int size() {
+      return _items.size();
+    }
+  }
+
+  public ItemListDataProvider(ItemManager<ITEM> itemManager, ItemSnapshot<ITEM> snapshot) {
+    this(itemManager, new SnapshotItems<>(snapshot.getItems()), snapshot);
+  }
+
+  private ItemListDataProvider(ItemManager<ITEM> itemManager, SnapshotItems<ITEM> items,
+      ItemSnapshot<ITEM> snapshot) {
+    super(items);
+    _itemManager = itemManager;
+    _items = items;
+    _snapshot = snapshot;
+  }
+
+  public ItemManager<ITEM> getItemManager() {
+    return _itemManager;
+  }
+
+  // lets a sort on the property walk the shared column values of the value function
+  public void addSortColumn(String sortProperty, Function<ITEM, ?> valueFunction) {
+    _sortColumns.put(sortProperty, valueFunction);
+  }
+
+  // the items are always those of a snapshot, so column sorts can walk its permutations
+  public void setSnapshot(ItemSnapshot<ITEM> snapshot) {
+    _items._items = snapshot.getItems();
+    _snapshot = snapshot;
+  }
+
+  // called from the grid's sort listener with the sort it just handed its data communicator
+  public void setSort(List<QuerySortOrder> sortOrders, boolean comparatorSort) {
+    _sortOrders = sortOrders == null ? ImmutableList.of() : ImmutableList.copyOf(sortOrders);
+    _comparatorSort = _sortOrders.isEmpty() && comparatorSort;
+  }
+
+  // builds the rows for the snapshot under the current filter and the last sort the grid asked for, safe to call
+  // off the session lock, null when that sort can only be done by the grid comparators
+  public View<ITEM> createView(ItemSnapshot<ITEM> snapshot, IntPredicate rowFilter) {
+    SerializablePredicate<ITEM> filter = getFilter();
+    List<QuerySortOrder> sortOrders = _sortOrders;
+    if (_comparatorSort) {
+      return null;
+    } else if (sortOrders.isEmpty()) {
+      int[] rows = IntStream.range(0, snapshot.size())
+                            .filter(rowFilter)
+                            .toArray();
+      SerializableComparator<ITEM> comparator = getSortComparator();
+      if (comparator != null) {
+        RowSort.sort(rows, (row1, row2) -> comparator.compare(snapshot.get(row1), snapshot.get(row2)));
+      }
+      return new View<>(snapshot, filter, sortOrders, rows);
+    }
+    ColumnValues<ITEM> columnValues = _itemManager.getSortColumnValues(sortOrders, _sortColumns, snapshot);
+    if (columnValues == null) {
+      return null;
+    }
+    int[] rows = IntStream.of(columnValues.getPermutation(ItemManager.isDescending(sortOrders)))
+                          .filter(rowFilter)
+                          .toArray();
+    return new View<>(snapshot, filter, sortOrders, rows);
+  }
+
+  // the order a sort on one column walks, null when the grid comparators sort instead
+  public int[] getSortPermutation(ItemSnapshot<ITEM> snapshot, List<QuerySortOrder> sortOrders) {
+    ColumnValues<ITEM> columnValues = _itemManager.getSortColumnValues(sortOrders, _sortColumns, snapshot);
+    return columnValues == null ? null : columnValues.getPermutation(ItemManager.isDescending(sortOrders));
+  }
+
+  // called with the session lock held, a reference swap
+  public void setView(View<ITEM> view) {
+    _view = view;
+  }
+
+  // the view the grid renders from, null when the grid falls back to filtering and sorting itself
+  public View<ITEM> getView() {
+    View<ITEM> view = _view;
+    if (view == null || view._snapshot != _snapshot || view._filter != getFilter()) {
+      return null;
+    }
+    return view;
+  }
+
+  // the view while it is still sorted the way the grid last asked for
+  public View<ITEM> getSortedView() {
+    View<ITEM> view = getView();
+    if (view == null || _comparatorSort || !isSameSort(view._sortOrders, _sortOrders)) {
+      return null;
+    }
+    return view;
+  }
+
+  // keeps selection and refreshItem working across new instances of the same item
+  @Override
+  public Object getId(ITEM item) {
+    return _itemManager.getItemKey(item);
+  }
+
+  @Override
+  public int size(Query<ITEM, SerializablePredicate<ITEM>> query) {
+    View<ITEM> view = getView();
+    if (view != null && !query.getFilter()
+                              .isPresent()) {
+      return view.size();
+    }
+    return super.size(query);
+  }
+
+  @Override
+  public Stream<ITEM> fetch(Query<ITEM, SerializablePredicate<ITEM>> query) {
+    List<QuerySortOrder> sortOrders = query.getSortOrders();
+    View<ITEM> view = getSortedView();
+    if (view != null && !query.getFilter()
+                              .isPresent()) {
+      return view.stream(query.getOffset(), query.getLimit());
+    }
+    ColumnValues<ITEM> columnValues = _itemManager.getSortColumnValues(sortOrders, _sortColumns, _snapshot);
+    if (columnValues == null) {
+      return super.fetch(query);
+    }
+    Stream<ITEM> stream = columnValues.stream(ItemManager.isDescending(sortOrders));
+    SerializablePredicate<ITEM> filter = getFilter();
+    if (filter != null) {
+      stream = stream.filter(filter);
+    }
+    Optional<SerializablePredicate<ITEM>> queryFilter = query.getFilter();
+    if (queryFilter.isPresent()) {
+      stream = stream.filter(queryFilter.get());
+    }
+    return stream.skip(query.getOffset())
+                 .limit(query.getLimit());
+  }
+
+  private static boolean isSameSort(List<QuerySortOrder> sortOrders1, List<QuerySortOrder> sortOrders2) {
+    if (sortOrders1.size() != sortOrders2.size()) {
+      return false;
+    }
+    for (int i = 0; i < sortOrders1.size(); i++) {
+      QuerySortOrder sortOrder1 = sortOrders1.get(i);
+      QuerySortOrder sortOrder2 = sortOrders2.get(i);
+      if (!sortOrder1.getSorted()
+                     .equals(sortOrder2.getSorted())
+          || sortOrder1.getDirection() != sortOrder2.getDirection()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -1,21 +1,51 @@
 package vaadin.util.push;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.MapMaker;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.data.provider.SortDirection;
+import com.vaadin.flow.function.SerializablePredicate;
+import com.vaadin.flow.shared.Registration;
 
 import lombok.extern.slf4j.Slf4j;
+import vaadin.util.filter.FacetCounts;
 import vaadin.util.filter.Filter;
 import vaadin.util.filter.FilterInfo;
+import vaadin.util.filter.RangeFilter;
 
+// items must not change once handed out, a change is a new instance published through itemsChanged or a refresh,
+// which is what lets snapshots, column values and search text be cached per instance
 @Slf4j
 public abstract class ItemManager<ITEM> {
 
+  public static final String MAX_PUBLISHED_DIFFS_PROPERTY = "vaadin.util.push.maxPublishedDiffs";
+  // past this many unapplied diffs they are dropped and the next snapshot takes a full diff
+  public static final int MAX_PUBLISHED_DIFFS = Integer.getInteger(MAX_PUBLISHED_DIFFS_PROPERTY, 1000);
+
   public static <T> void updateCollection(Collection<T> collection, Collection<T> deltaCollection) {
     collection.addAll(deltaCollection);
     collection.retainAll(deltaCollection);
@@ -27,11 +57,33 @@ public abstract class ItemManager<ITEM> {
 
   private final Class<ITEM> _itemClass;
   private final FilterInfo<ITEM> _filterInfo;
+  private final SearchableType<ITEM> _searchableType;
+  private final ItemKeyType<ITEM> _itemKeyType;
   private final Timer _timer;
+  private final AtomicLong _generation = new AtomicLong();
+  private final Object _snapshotLock = new Object();
+  private final FilteredIndexCache<ITEM> _filteredIndexCache = new FilteredIndexCache<>();
+  private final TrigramIndex<ITEM> _trigramIndex;
+  private final List<ItemDeltaListener<ITEM>> _itemDeltaListeners = new CopyOnWriteArrayList<>();
+  // keyed by value function, so views only share values they compute the same way, and an entry lives as long as
+  // some column still holds its values
+  private final ConcurrentMap<Function<ITEM, ?>, ColumnValues<ITEM>> _columnValues = new MapMaker().weakKeys()
+                                                                                                   .weakValues()
+                                                                                                   .makeMap();
+  // guarded by _snapshotLock
+  private final NavigableMap<Long, ItemDiff<ITEM>> _publishedDiffs = new TreeMap<>();
+  private volatile ItemSnapshot<ITEM> _snapshot;
 
   protected ItemManager() {
     _itemClass = ClassHelper.getItemClass(getLookupClass(), getClass());
     _filterInfo = new FilterInfo<>(_itemClass);
+    _searchableType = new SearchableType<>(_itemClass);
+    _itemKeyType = new ItemKeyType<>(_itemClass);
+    _trigramIndex = isSearchIndexEnabled() ? new TrigramIndex<>(_searchableType) : null;
+    _itemDeltaListeners.add(_filterInfo::onItemDelta);
+    if (_trigramIndex != null) {
+      _itemDeltaListeners.add(_trigramIndex::onItemDelta);
+    }
     _timer = new Timer(getClass().getName(), true);
     long delay = TimeUnit.SECONDS.toMillis(1);
     long period = getUpdatePeriod();
@@ -55,16 +107,127 @@ public abstract class ItemManager<ITEM> {
 
   protected abstract long getUpdatePeriod();
 
+  protected boolean isSearchIndexEnabled() {
+    return false;
+  }
+
   public synchronized boolean updateData() {
+    long generation = getGeneration();
     boolean result = doUpdateData();
     if (result) {
+      if (getGeneration() == generation) {
+        // nothing was published by the refresh, a full diff will be taken
+        itemsChanged();
+      }
       updateFilterValues();
     }
     return result;
   }
 
+  // building the snapshot delivers the pending deltas to the filter values
   protected synchronized void updateFilterValues() {
-    _filterInfo.updatePossibleValues(getItems());
+    getSnapshot();
+  }
+
+  protected void itemsChanged() {
+    _generation.incrementAndGet();
+  }
+
+  // the change is applied under the snapshot lock so no snapshot can observe it without its diff
+  protected void itemsChanged(Supplier<ItemDiff<ITEM>> change) {
+    synchronized (_snapshotLock) {
+      ItemDiff<ITEM> diff = change.get();
+      if (_publishedDiffs.size() >= MAX_PUBLISHED_DIFFS) {
+        // nobody asked for a snapshot in a while, the gap makes the next one take a full diff
+        _publishedDiffs.clear();
+      }
+      _publishedDiffs.put(_generation.incrementAndGet(), diff);
+    }
+  }
+
+  public Registration addItemDeltaListener(ItemDeltaListener<ITEM> listener) {
+    _itemDeltaListeners.add(listener);
+    return () -> _itemDeltaListeners.remove(listener);
+  }
+
+  public long getGeneration() {
+    return _generation.get();
+  }
+
+  public ItemSnapshot<ITEM> getSnapshot() {
+    ItemSnapshot<ITEM> snapshot = _snapshot;
+    if (snapshot != null && snapshot.getGeneration() == _generation.get()) {
+      return snapshot;
+    }
+    synchronized (_snapshotLock) {
+      long generation = _generation.get();
+      snapshot = _snapshot;
+      if (snapshot == null || snapshot.getGeneration() != generation) {
+        List<ItemDelta<ITEM>> deltas = new ArrayList<>();
+        _snapshot = snapshot = nextSnapshot(snapshot, generation, deltas);
+        fireItemDeltas(deltas);
+      }
+      return snapshot;
+    }
+  }
+
+  private ItemSnapshot<ITEM> nextSnapshot(ItemSnapshot<ITEM> previous, long generation,
+      List<ItemDelta<ITEM>> deltas) {
+    List<ItemDelta<ITEM>> published = previous == null ? null
+        : getPublishedDeltas(previous.getGeneration(), generation);
+    ItemSnapshot<ITEM> snapshot;
+    if (published != null) {
+      snapshot = new ItemSnapshot<>(generation, apply(previous.getItems(), published), _itemKeyType::getKey);
+      deltas.addAll(published);
+    } else {
+      snapshot = new ItemSnapshot<>(generation, getItems(), _itemKeyType::getKey);
+      List<ITEM> previousItems = previous == null ? ImmutableList.of() : previous.getItems();
+      long fromGeneration = previous == null ? -1 : previous.getGeneration();
+      deltas.add(new ItemDelta<>(fromGeneration, generation,
+          ItemDiff.diff(previousItems, snapshot.getItems(), _itemKeyType::getKey)));
+    }
+    _publishedDiffs.headMap(generation, true)
+                   .clear();
+    return snapshot;
+  }
+
+  private void fireItemDeltas(List<ItemDelta<ITEM>> deltas) {
+    for (ItemDelta<ITEM> delta : deltas) {
+      for (ItemDeltaListener<ITEM> listener : _itemDeltaListeners) {
+        try {
+          listener.onItemDelta(delta);
+        } catch (Throwable t) {
+          log.error("Unknown error while delivering item delta", t);
+        }
+      }
+    }
+  }
+
+  // null unless every generation since the previous snapshot published its diff
+  private List<ItemDelta<ITEM>> getPublishedDeltas(long fromGeneration, long generation) {
+    List<ItemDelta<ITEM>> deltas = new ArrayList<>();
+    for (long g = fromGeneration + 1; g <= generation; g++) {
+      ItemDiff<ITEM> diff = _publishedDiffs.get(g);
+      if (diff == null) {
+        return null;
+      }
+      // applied to the previous items, so without removals the rows keep their positions
+      deltas.add(new ItemDelta<>(g - 1, g, diff, diff.getRemoved()
+                                                     .isEmpty()));
+    }
+    return deltas;
+  }
+
+  // one pass over the items however many deltas are pending
+  private List<ITEM> apply(ImmutableList<ITEM> items, List<ItemDelta<ITEM>> deltas) {
+    List<ItemDiff<ITEM>> diffs = new ArrayList<>(deltas.size());
+    for (ItemDelta<ITEM> delta : deltas) {
+      if (!delta.getDiff()
+                .isEmpty()) {
+        diffs.add(delta.getDiff());
+      }
+    }
+    return diffs.isEmpty() ? items : ItemDiff.applyAll(items, diffs, _itemKeyType::getKey);
   }
 
   protected abstract boolean doUpdateData();
@@ -75,4 +238,150 @@ public abstract class ItemManager<ITEM> {
     return _filterInfo.getFilters(pushComponents);
   }
 
+  public List<RangeFilter> getRangeFilters() {
+    return _filterInfo.getRangeFilters();
+  }
+
+  public Object getItemKey(ITEM item) {
+    return _itemKeyType.getKey(item);
+  }
+
+  public ITEM getItemByKey(Object key) {
+    return getSnapshot().getByKey(key);
+  }
+
+  // shared by every view of this manager that renders a column with the same value function
+  public ColumnValues<ITEM> getColumnValues(Function<ITEM, ?> valueFunction) {
+    ItemSnapshot<ITEM> snapshot = getSnapshot();
+    ColumnValues<ITEM> columnValues = _columnValues.get(valueFunction);
+    if (columnValues != null && columnValues.getGeneration() >= snapshot.getGeneration()) {
+      return columnValues;
+    }
+    return _columnValues.compute(valueFunction, (key, previous) -> {
+      if (previous != null && previous.getGeneration() >= snapshot.getGeneration()) {
+        return previous;
+      }
+      return new ColumnValues<>(snapshot, valueFunction, previous);
+    });
+  }
+
+  // null unless the sort is on a single column of the grid and its values are of the snapshot
+  ColumnValues<ITEM> getSortColumnValues(List<QuerySortOrder> sortOrders,
+      Map<String, Function<ITEM, ?>> sortColumns, ItemSnapshot<ITEM> snapshot) {
+    if (sortOrders == null || sortOrders.size() != 1) {
+      return null;
+    }
+    Function<ITEM, ?> valueFunction = sortColumns.get(sortOrders.get(0)
+                                                                .getSorted());
+    if (valueFunction == null) {
+      return null;
+    }
+    ColumnValues<ITEM> columnValues = getColumnValues(valueFunction);
+    if (columnValues.getSnapshot() != snapshot) {
+      return null;
+    }
+    return columnValues;
+  }
+
+  static boolean isDescending(List<QuerySortOrder> sortOrders) {
+    return sortOrders.get(0)
+                     .getDirection() == SortDirection.DESCENDING;
+  }
+
+  public int getTotalCount() {
+    return getSnapshot().size();
+  }
+
+  public FilteredIndex<ITEM> query(ItemQuery itemQuery) {
+    ItemSnapshot<ITEM> snapshot = getSnapshot();
+    return _filteredIndexCache.get(snapshot, itemQuery, () -> {
+      if (itemQuery.isEmpty()) {
+        return FilteredIndex.all(snapshot);
+      }
+      SerializablePredicate<ITEM> predicate = getPredicate(itemQuery);
+      List<String> searchTokens = itemQuery.getSearchTokens();
+      BitSet candidates = null;
+      if (!itemQuery.getFilterSelections()
+                    .isEmpty()) {
+        candidates = _filterInfo.getFacetIndex(snapshot)
+                                .select(itemQuery.getFilterSelections());
+      }
+      if (!itemQuery.getFilterRanges()
+                    .isEmpty()) {
+        BitSet rangeCandidates = _filterInfo.getRangeIndex(snapshot)
+                                            .select(itemQuery.getFilterRanges());
+        if (candidates == null) {
+          candidates = rangeCandidates;
+        } else {
+          candidates.and(rangeCandidates);
+        }
+      }
+      if (candidates != null && searchTokens.isEmpty()) {
+        return FilteredIndex.of(snapshot, candidates, predicate);
+      }
+      if (_trigramIndex != null) {
+        BitSet searchCandidates = _trigramIndex.getCandidates(snapshot, searchTokens);
+        if (searchCandidates != null) {
+          if (candidates == null) {
+            candidates = searchCandidates;
+          } else {
+            candidates.and(searchCandidates);
+          }
+        }
+      }
+      if (candidates == null) {
+        return FilteredIndex.create(snapshot, predicate);
+      }
+      SerializablePredicate<ITEM> searchPredicate = t -> _searchableType.matches(t, searchTokens);
+      return FilteredIndex.create(snapshot, candidates, searchPredicate, predicate);
+    });
+  }
+
+  public FacetCounts getFacetCounts(ItemQuery itemQuery) {
+    return _filterInfo.getFacetCounts(query(itemQuery));
+  }
+
+  public int count(ItemQuery itemQuery, Query<ITEM, SerializablePredicate<ITEM>> query) {
+    return query(itemQuery, query).size();
+  }
+
+  public Stream<ITEM> fetch(ItemQuery itemQuery, Query<ITEM, SerializablePredicate<ITEM>> query) {
+    return fetch(itemQuery, query, ImmutableMap.of());
+  }
+
+  // the sort columns map sort properties to the value functions their columns render
+  public Stream<ITEM> fetch(ItemQuery itemQuery, Query<ITEM, SerializablePredicate<ITEM>> query,
+      Map<String, Function<ITEM, ?>> sortColumns) {
+    FilteredIndex<ITEM> filteredIndex = query(itemQuery, query);
+    List<QuerySortOrder> sortOrders = query.getSortOrders();
+    ColumnValues<ITEM> columnValues = getSortColumnValues(sortOrders, sortColumns, filteredIndex.getSnapshot());
+    if (columnValues != null) {
+      return columnValues.getPage(filteredIndex, isDescending(sortOrders), query.getOffset(), query.getLimit())
+                         .stream();
+    }
+    Stream<ITEM> stream = filteredIndex.stream();
+    Comparator<ITEM> comparator = query.getInMemorySorting();
+    if (comparator != null) {
+      stream = stream.sorted(comparator);
+    }
+    return stream.skip(query.getOffset())
+                 .limit(query.getLimit());
+  }
+
+  public SerializablePredicate<ITEM> getPredicate(ItemQuery itemQuery) {
+    SerializablePredicate<ITEM> filterPredicate = _filterInfo.getPredicate(itemQuery.getFilterSelections());
+    SerializablePredicate<ITEM> rangePredicate = _filterInfo.getRangePredicate(itemQuery.getFilterRanges());
+    List<String> searchTokens = itemQuery.getSearchTokens();
+    return t -> filterPredicate.test(t) && rangePredicate.test(t) && _searchableType.matches(t, searchTokens);
+  }
+
+  private FilteredIndex<ITEM> query(ItemQuery itemQuery, Query<ITEM, SerializablePredicate<ITEM>> query) {
+    FilteredIndex<ITEM> filteredIndex = query(itemQuery);
+    Optional<SerializablePredicate<ITEM>> filter = query.getFilter();
+    if (filter.isPresent()) {
+      return filteredIndex.and(filter.get());
+    }
+    return filteredIndex;
+  }
+
 }
@@ -0,0 +1,20 @@
+package vaadin.util.push;
+
+import java.util.List;
+
+import vaadin.util.filter.FilterAccessor;
+
+// the annotated members of an item class, generated at compile time as <Class>_ItemMetadata by
+// vaadin.util.processor.ItemMetadataProcessor, otherwise read once by reflection, see ItemMetadataLoader
+public interface ItemMetadata<ITEM> {
+
+  String SUFFIX = "_ItemMetadata";
+
+  // null when the item has no @ItemKey
+  LambdaAccessor<ITEM, ?> getItemKey();
+
+  List<LambdaAccessor<ITEM, ?>> getSearchables();
+
+  List<FilterAccessor<ITEM>> getFilterables();
+
+}
@@ -0,0 +1,40 @@
+package vaadin.util.push;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class ItemMetadataLoader {
+
+  // one lookup per item class, unloaded with the class
+  private static final ClassValue<ItemMetadata<?>> METADATA = new ClassValue<ItemMetadata<?>>() {
+    @Override
+    protected ItemMetadata<?> computeValue(Class<?> type) {
+      return load(type);
+    }
+  };
+
+  @SuppressWarnings("unchecked")
+  public static <ITEM> ItemMetadata<ITEM> get(Class<ITEM> clazz) {
+    return (ItemMetadata<ITEM>) METADATA.get(clazz);
+  }
+
+  private static <ITEM> ItemMetadata<ITEM> load(Class<ITEM> clazz) {
+    String className = clazz.getName() + ItemMetadata.SUFFIX;
+    try {
+      Class<?> metadataClass = Class.forName(className, true, clazz.getClassLoader());
+      if (ItemMetadata.class.isAssignableFrom(metadataClass)) {
+        @SuppressWarnings("unchecked")
+        ItemMetadata<ITEM> itemMetadata = (ItemMetadata<ITEM>) metadataClass.getDeclaredConstructor()
+                                                                            .newInstance();
+        return itemMetadata;
+      }
+      log.error("Class {} is not an ItemMetadata", className);
+    } catch (ClassNotFoundException e) {
+      log.debug("No generated metadata for {}, using reflection", clazz.getName());
+    } catch (ReflectiveOperationException | LinkageError e) {
+      log.error("Could not create {}, using reflection", className, e);
+    }
+    return new ReflectionItemMetadata<>(clazz);
+  }
+
+}
@@ -0,0 +1,34 @@
+package vaadin.util.push;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import vaadin.util.filter.FilterRange;
+
+@Value
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class ItemQuery {
+
+  public static final ItemQuery ALL = ItemQuery.builder()
+                                               .build();
+
+  @Builder.Default
+  ImmutableMap<String, ImmutableSet<String>> filterSelections = ImmutableMap.of();
+  @Builder.Default
+  ImmutableMap<String, FilterRange> filterRanges = ImmutableMap.of();
+  @Builder.Default
+  ImmutableList<String> searchTokens = ImmutableList.of();
+
+  public boolean isEmpty() {
+    return filterSelections.isEmpty() && filterRanges.isEmpty() && searchTokens.isEmpty();
+  }
+
+}
@@ -0,0 +1,113 @@
+package vaadin.util.push;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// either the grid's selected items or all rows of a filtered index minus exclusions, size and contains are constant
+// time in both forms and iteration is lazy
+public class ItemSelection<ITEM> extends AbstractSet<ITEM> {
+
+  private static final ItemSelection<Object> EMPTY = new ItemSelection<>(Collections.emptySet(), null, null, 0);
+
+  private final Set<ITEM> _items;
+  private final FilteredIndex<ITEM> _matching;
+  private final BitSet _excluded;
+  private final int _size;
+
+  private ItemSelection(Set<ITEM> items, FilteredIndex<ITEM> matching, BitSet excluded, int size) {
+    _items = items;
+    _matching = matching;
+    _excluded = excluded;
+    _size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <ITEM> ItemSelection<ITEM> empty() {
+    return (ItemSelection<ITEM>) EMPTY;
+  }
+
+  // wraps the set without copying it
+  public static <ITEM> ItemSelection<ITEM> of(Set<ITEM> items) {
+    return new ItemSelection<>(items, null, null, -1);
+  }
+
+  public static <ITEM> ItemSelection<ITEM> allMatching(FilteredIndex<ITEM> filteredIndex) {
+    return new ItemSelection<>(null, filteredIndex, new BitSet(), filteredIndex.size());
+  }
+
+  public boolean isAllMatching() {
+    return _matching != null;
+  }
+
+  public FilteredIndex<ITEM> getMatching() {
+    return _matching;
+  }
+
+  public ItemSelection<ITEM> exclude(ITEM item) {
+    return setExcluded(item, true);
+  }
+
+  public ItemSelection<ITEM> include(ITEM item) {
+    return setExcluded(item, false);
+  }
+
+  private ItemSelection<ITEM> setExcluded(ITEM item, boolean excluded) {
+    if (_matching == null) {
+      throw new IllegalStateException("Exclusions only apply to a select all");
+    }
+    int row = getMatchingRow(item);
+    if (row < 0 || _excluded.get(row) == excluded) {
+      return this;
+    }
+    BitSet bitSet = (BitSet) _excluded.clone();
+    bitSet.set(row, excluded);
+    return new ItemSelection<>(null, _matching, bitSet, excluded ? _size - 1 : _size + 1);
+  }
+
+  private int getMatchingRow(ITEM item) {
+    int row = _matching.getSnapshot()
+                       .indexOf(item);
+    return row >= 0 && _matching.containsRow(row) ? row : -1;
+  }
+
+  @Override
+  public int size() {
+    if (_items != null) {
+      return _items.size();
+    }
+    return _size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean contains(Object o) {
+    if (_items != null) {
+      return _items.contains(o);
+    }
+    int row = getMatchingRow((ITEM) o);
+    return row >= 0 && !_excluded.get(row);
+  }
+
+  @Override
+  public Iterator<ITEM> iterator() {
+    if (_items != null) {
+      return _items.iterator();
+    }
+    ItemSnapshot<ITEM> snapshot = _matching.getSnapshot();
+    return IntStream.range(0, _matching.size())
+                    .map(_matching::getRow)
+                    .filter(row -> !_excluded.get(row))
+                    .mapToObj(snapshot::get)
+                    .iterator();
+  }
+
+}
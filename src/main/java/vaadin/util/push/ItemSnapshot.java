@@ -0,0 +1,84 @@
+package vaadin.util.push;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+
+public class ItemSnapshot<ITEM> {
+
+  private final long _generation;
+  private final ImmutableList<ITEM> _items;
+  private final Function<ITEM, ?> _keyFunction;
+  private volatile Map<Object, Integer> _rowMap;
+
+  public ItemSnapshot(long generation, Collection<ITEM> items) {
+    this(generation, items, item -> item);
+  }
+
+  public ItemSnapshot(long generation, Collection<ITEM> items, Function<ITEM, ?> keyFunction) {
+    _generation = generation;
+    _items = ImmutableList.copyOf(items);
+    _keyFunction = keyFunction;
+  }
+
+  public long getGeneration() {
+    return _generation;
+  }
+
+  public ImmutableList<ITEM> getItems() {
+    return _items;
+  }
+
+  public int size() {
+    return _items.size();
+  }
+
+  public ITEM get(int row) {
+    return _items.get(row);
+  }
+
+  public Object getKey(ITEM item) {
+    return _keyFunction.apply(item);
+  }
+
+  public int indexOf(ITEM item) {
+    return indexOfKey(_keyFunction.apply(item));
+  }
+
+  public int indexOfKey(Object key) {
+    Integer row = getRowMap().get(key);
+    if (row == null) {
+      return -1;
+    }
+    return row;
+  }
+
+  public ITEM getByKey(Object key) {
+    int row = indexOfKey(key);
+    if (row < 0) {
+      return null;
+    }
+    return _items.get(row);
+  }
+
+  private Map<Object, Integer> getRowMap() {
+    Map<Object, Integer> rowMap = _rowMap;
+    if (rowMap == null) {
+      synchronized (this) {
+        rowMap = _rowMap;
+        if (rowMap == null) {
+          rowMap = new HashMap<>(Math.max(16, (int) (_items.size() / 0.75f) + 1));
+          for (int row = 0; row < _items.size(); row++) {
+            rowMap.putIfAbsent(_keyFunction.apply(_items.get(row)), row);
+          }
+          _rowMap = rowMap;
+        }
+      }
+    }
+    return rowMap;
+  }
+
+}
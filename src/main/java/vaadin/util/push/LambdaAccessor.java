@@ -5,6 +5,10 @@ import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 import com.google.common.base.Function;
 
@@ -14,7 +18,14 @@ import vaadin.util.test.TestItem;
 public final class LambdaAccessor<TYPE, VALUE> {
 
   private static final String INVOKED_NAME = "apply";
+
+  private final Class<?> _valueType;
   private final Function<TYPE, VALUE> _function;
+  // primitive getters get a specialized function so reading them does not box
+  private final ToIntFunction<TYPE> _intFunction;
+  private final ToLongFunction<TYPE> _longFunction;
+  private final ToDoubleFunction<TYPE> _doubleFunction;
+  private final Predicate<TYPE> _predicate;
 
   public static void main(String[] args) {
     LambdaAccessor<TestItem, String> accessor = new LambdaAccessor<>(TestItem.class, "getName", String.class);
@@ -24,21 +35,192 @@ public final class LambdaAccessor<TYPE, VALUE> {
     System.out.println(accessor.getValue(testItem));
   }
 
-  @SneakyThrows
+  @SuppressWarnings("unchecked")
   public LambdaAccessor(Class<TYPE> clazz, String methodName, Class<?> methodType) {
+    _valueType = methodType;
+    if (methodType == Integer.TYPE || methodType == Short.TYPE || methodType == Byte.TYPE
+        || methodType == Character.TYPE) {
+      _function = null;
+      _intFunction = (ToIntFunction<TYPE>) create(clazz, methodName, methodType, ToIntFunction.class,
+          "applyAsInt", Integer.TYPE);
+      _longFunction = null;
+      _doubleFunction = null;
+      _predicate = null;
+    } else if (methodType == Long.TYPE) {
+      _function = null;
+      _intFunction = null;
+      _longFunction = (ToLongFunction<TYPE>) create(clazz, methodName, methodType, ToLongFunction.class,
+          "applyAsLong", Long.TYPE);
+      _doubleFunction = null;
+      _predicate = null;
+    } else if (methodType == Double.TYPE || methodType == Float.TYPE) {
+      _function = null;
+      _intFunction = null;
+      _longFunction = null;
+      _doubleFunction = (ToDoubleFunction<TYPE>) create(clazz, methodName, methodType, ToDoubleFunction.class,
+          "applyAsDouble", Double.TYPE);
+      _predicate = null;
+    } else if (methodType == Boolean.TYPE) {
+      _function = null;
+      _intFunction = null;
+      _longFunction = null;
+      _doubleFunction = null;
+      _predicate = (Predicate<TYPE>) create(clazz, methodName, methodType, Predicate.class, "test", Boolean.TYPE);
+    } else {
+      _function = (Function<TYPE, VALUE>) create(clazz, methodName, methodType, Function.class, INVOKED_NAME,
+          Object.class);
+      _intFunction = null;
+      _longFunction = null;
+      _doubleFunction = null;
+      _predicate = null;
+    }
+  }
+
+  private LambdaAccessor(Class<?> valueType, Function<TYPE, VALUE> function, ToIntFunction<TYPE> intFunction,
+      ToLongFunction<TYPE> longFunction, ToDoubleFunction<TYPE> doubleFunction, Predicate<TYPE> predicate) {
+    _valueType = valueType;
+    _function = function;
+    _intFunction = intFunction;
+    _longFunction = longFunction;
+    _doubleFunction = doubleFunction;
+    _predicate = predicate;
+  }
+
+  // the factories below take the getter directly, as generated item metadata does, so nothing is spun up at runtime
+  public static <TYPE, VALUE> LambdaAccessor<TYPE, VALUE> of(Class<?> valueType, Function<TYPE, VALUE> function) {
+    return new LambdaAccessor<>(valueType, function, null, null, null, null);
+  }
+
+  public static <TYPE> LambdaAccessor<TYPE, ?> ofInt(Class<?> valueType, ToIntFunction<TYPE> intFunction) {
+    return new LambdaAccessor<>(valueType, null, intFunction, null, null, null);
+  }
+
+  public static <TYPE> LambdaAccessor<TYPE, ?> ofLong(ToLongFunction<TYPE> longFunction) {
+    return new LambdaAccessor<>(Long.TYPE, null, null, longFunction, null, null);
+  }
+
+  public static <TYPE> LambdaAccessor<TYPE, ?> ofDouble(Class<?> valueType, ToDoubleFunction<TYPE> doubleFunction) {
+    return new LambdaAccessor<>(valueType, null, null, null, doubleFunction, null);
+  }
+
+  public static <TYPE> LambdaAccessor<TYPE, ?> ofBoolean(Predicate<TYPE> predicate) {
+    return new LambdaAccessor<>(Boolean.TYPE, null, null, null, null, predicate);
+  }
+
+  @SneakyThrows
+  private static Object create(Class<?> clazz, String methodName, Class<?> methodType, Class<?> interfaceType,
+      String invokedName, Class<?> returnType) {
     MethodHandles.Lookup lookup = MethodHandles.lookup();
-    MethodType invokedType = MethodType.methodType(Function.class);
-    MethodType samMethodType = MethodType.methodType(Object.class, Object.class);
+    MethodType invokedType = MethodType.methodType(interfaceType);
+    MethodType samMethodType = MethodType.methodType(returnType, Object.class);
     MethodHandle implMethod = lookup.findVirtual(clazz, methodName, MethodType.methodType(methodType));
-    MethodType instantiatedMethodType = MethodType.methodType(methodType, clazz);
-    CallSite site = LambdaMetafactory.metafactory(lookup, INVOKED_NAME, invokedType, samMethodType, implMethod,
+    MethodType instantiatedMethodType = MethodType.methodType(returnType == Object.class ? methodType : returnType,
+        clazz);
+    CallSite site = LambdaMetafactory.metafactory(lookup, invokedName, invokedType, samMethodType, implMethod,
         instantiatedMethodType);
-    _function = (Function<TYPE, VALUE>) site.getTarget()
-                                            .invokeExact();
+    return site.getTarget()
+               .invoke();
+  }
+
+  public Class<?> getValueType() {
+    return _valueType;
   }
 
+  public boolean isIntegral() {
+    return _intFunction != null || _longFunction != null;
+  }
+
+  public boolean isFloatingPoint() {
+    return _doubleFunction != null;
+  }
+
+  public boolean isBoolean() {
+    return _predicate != null;
+  }
+
+  public boolean isPrimitive() {
+    return _function == null;
+  }
+
+  // boxes primitives as their own wrapper type, so toString is unchanged
+  @SuppressWarnings("unchecked")
   public VALUE getValue(TYPE bean) {
-    return _function.apply(bean);
+    if (_function != null) {
+      return _function.apply(bean);
+    }
+    Object value;
+    if (_valueType == Integer.TYPE) {
+      value = _intFunction.applyAsInt(bean);
+    } else if (_valueType == Character.TYPE) {
+      value = (char) _intFunction.applyAsInt(bean);
+    } else if (_valueType == Short.TYPE) {
+      value = (short) _intFunction.applyAsInt(bean);
+    } else if (_valueType == Byte.TYPE) {
+      value = (byte) _intFunction.applyAsInt(bean);
+    } else if (_valueType == Long.TYPE) {
+      value = _longFunction.applyAsLong(bean);
+    } else if (_valueType == Float.TYPE) {
+      value = (float) _doubleFunction.applyAsDouble(bean);
+    } else if (_valueType == Double.TYPE) {
+      value = _doubleFunction.applyAsDouble(bean);
+    } else {
+      value = _predicate.test(bean);
+    }
+    return (VALUE) value;
+  }
+
+  public int getInt(TYPE bean) {
+    if (_intFunction == null) {
+      throw new IllegalStateException("Value of type " + _valueType + " is not an int");
+    }
+    return _intFunction.applyAsInt(bean);
+  }
+
+  public long getLong(TYPE bean) {
+    if (_intFunction != null) {
+      return _intFunction.applyAsInt(bean);
+    } else if (_longFunction != null) {
+      return _longFunction.applyAsLong(bean);
+    }
+    throw new IllegalStateException("Value of type " + _valueType + " is not integral");
+  }
+
+  public double getDouble(TYPE bean) {
+    if (_doubleFunction != null) {
+      return _doubleFunction.applyAsDouble(bean);
+    }
+    return getLong(bean);
+  }
+
+  public boolean test(TYPE bean) {
+    if (_predicate == null) {
+      throw new IllegalStateException("Value of type " + _valueType + " is not a boolean");
+    }
+    return _predicate.test(bean);
+  }
+
+  // appends without boxing primitives, false when the value is null
+  public boolean appendTo(StringBuilder builder, TYPE bean) {
+    if (_function != null) {
+      Object value = _function.apply(bean);
+      if (value == null) {
+        return false;
+      }
+      builder.append(value.toString());
+    } else if (_valueType == Character.TYPE) {
+      builder.append((char) _intFunction.applyAsInt(bean));
+    } else if (_intFunction != null) {
+      builder.append(_intFunction.applyAsInt(bean));
+    } else if (_longFunction != null) {
+      builder.append(_longFunction.applyAsLong(bean));
+    } else if (_valueType == Float.TYPE) {
+      builder.append((float) _doubleFunction.applyAsDouble(bean));
+    } else if (_doubleFunction != null) {
+      builder.append(_doubleFunction.applyAsDouble(bean));
+    } else {
+      builder.append(_predicate.test(bean));
+    }
+    return true;
   }
 
-}
\ No newline at end of file
+}
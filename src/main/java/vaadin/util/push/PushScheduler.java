@@ -0,0 +1,134 @@
+package vaadin.util.push;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class PushScheduler {
+
+  public static final String MIN_INTERVAL_PROPERTY = "vaadin.util.push.minInterval";
+  public static final String THREADS_PROPERTY = "vaadin.util.push.threads";
+
+  public static final PushScheduler INSTANCE = new PushScheduler();
+
+  private final ScheduledThreadPoolExecutor _service;
+  private final Map<UI, PushState> _stateMap;
+  private final AtomicLong _requested = new AtomicLong();
+  private final AtomicLong _executed = new AtomicLong();
+  private final AtomicLong _lockHolds = new AtomicLong();
+  private final AtomicLong _lockHoldNanos = new AtomicLong();
+  private final AtomicLong _maxLockHoldNanos = new AtomicLong();
+  private volatile long _minInterval;
+
+  private static class PushState {
+    final Map<Object, Runnable> pending = new LinkedHashMap<>();
+    boolean scheduled;
+    long lastRun;
+  }
+
+  private PushScheduler() {
+    _stateMap = new MapMaker().weakKeys()
+                              .makeMap();
+    _minInterval = Long.getLong(MIN_INTERVAL_PROPERTY, 250);
+    int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime()
+                                                              .availableProcessors());
+    _service = new ScheduledThreadPoolExecutor(threads, new ThreadFactoryBuilder().setDaemon(true)
+                                                                                  .setNameFormat("push-scheduler-%d")
+                                                                                  .build());
+    Runtime.getRuntime()
+           .addShutdownHook(new Thread(() -> _service.shutdownNow()));
+  }
+
+  public void schedule(UI ui, Object key, Runnable runnable) {
+    _requested.incrementAndGet();
+    PushState state = _stateMap.computeIfAbsent(ui, u -> new PushState());
+    synchronized (state) {
+      state.pending.put(key, runnable);
+      if (!state.scheduled) {
+        state.scheduled = true;
+        submit(state);
+      }
+    }
+  }
+
+  public void setMinInterval(long minInterval, TimeUnit unit) {
+    _minInterval = unit.toMillis(minInterval);
+  }
+
+  public long getMinInterval(TimeUnit unit) {
+    return unit.convert(_minInterval, TimeUnit.MILLISECONDS);
+  }
+
+  public long getRequestedCount() {
+    return _requested.get();
+  }
+
+  public long getExecutedCount() {
+    return _executed.get();
+  }
+
+  public void recordLockHold(long nanos) {
+    _lockHolds.incrementAndGet();
+    _lockHoldNanos.addAndGet(nanos);
+    _maxLockHoldNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  public long getLockHoldCount() {
+    return _lockHolds.get();
+  }
+
+  public long getLockHoldTime(TimeUnit unit) {
+    return unit.convert(_lockHoldNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  public long getMaxLockHoldTime(TimeUnit unit) {
+    return unit.convert(_maxLockHoldNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  private void submit(PushState state) {
+    long delay = Math.max(0, state.lastRun + _minInterval - System.currentTimeMillis());
+    _service.schedule(() -> drain(state), delay, TimeUnit.MILLISECONDS);
+  }
+
+  private void drain(PushState state) {
+    List<Runnable> runnables;
+    synchronized (state) {
+      runnables = new ArrayList<>(state.pending.values());
+      state.pending.clear();
+    }
+    try {
+      for (Runnable runnable : runnables) {
+        _executed.incrementAndGet();
+        try {
+          runnable.run();
+        } catch (UIDetachedException e) {
+          log.debug("UI detached before push could run");
+        } catch (Throwable t) {
+          log.error("Unknown error while trying to push", t);
+        }
+      }
+    } finally {
+      synchronized (state) {
+        state.lastRun = System.currentTimeMillis();
+        if (state.pending.isEmpty()) {
+          state.scheduled = false;
+        } else {
+          submit(state);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+package vaadin.util.push;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.extern.slf4j.Slf4j;
+import vaadin.util.filter.FilterAccessor;
+import vaadin.util.filter.Filterable;
+
+// the fallback for item classes compiled without the processor
+@Slf4j
+class ReflectionItemMetadata<ITEM> implements ItemMetadata<ITEM> {
+
+  private final LambdaAccessor<ITEM, ?> _itemKey;
+  private final List<LambdaAccessor<ITEM, ?>> _searchables;
+  private final List<FilterAccessor<ITEM>> _filterables;
+
+  ReflectionItemMetadata(Class<ITEM> clazz) {
+    List<LambdaAccessor<ITEM, ?>> itemKeys = new ArrayList<>();
+    List<LambdaAccessor<ITEM, ?>> searchables = new ArrayList<>();
+    List<FilterAccessor<ITEM>> filterables = new ArrayList<>();
+    for (Field field : clazz.getDeclaredFields()) {
+      if (!hasAnnotation(field.getAnnotations())) {
+        continue;
+      }
+      Method method = findGetterMethod(clazz, field);
+      if (method == null) {
+        log.error("Getter method for field {} not found", field.getName());
+      } else {
+        add(clazz, field.getAnnotation(ItemKey.class), field.getAnnotation(Searchable.class),
+            field.getAnnotation(Filterable.class), method, itemKeys, searchables, filterables);
+      }
+    }
+    for (Method method : clazz.getDeclaredMethods()) {
+      if (hasAnnotation(method.getAnnotations())) {
+        add(clazz, method.getAnnotation(ItemKey.class), method.getAnnotation(Searchable.class),
+            method.getAnnotation(Filterable.class), method, itemKeys, searchables, filterables);
+      }
+    }
+    _itemKey = itemKeys.isEmpty() ? null : itemKeys.get(0);
+    _searchables = ImmutableList.copyOf(searchables);
+    _filterables = ImmutableList.copyOf(filterables);
+  }
+
+  @Override
+  public LambdaAccessor<ITEM, ?> getItemKey() {
+    return _itemKey;
+  }
+
+  @Override
+  public List<LambdaAccessor<ITEM, ?>> getSearchables() {
+    return _searchables;
+  }
+
+  @Override
+  public List<FilterAccessor<ITEM>> getFilterables() {
+    return _filterables;
+  }
+
+  private static boolean hasAnnotation(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      Class<? extends Annotation> annotationType = annotation.annotationType();
+      if (annotationType == ItemKey.class || annotationType == Searchable.class
+          || annotationType == Filterable.class) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // one accessor is shared by every annotation on the member
+  private static <ITEM> void add(Class<ITEM> clazz, ItemKey itemKey, Searchable searchable, Filterable filterable,
+      Method method, List<LambdaAccessor<ITEM, ?>> itemKeys, List<LambdaAccessor<ITEM, ?>> searchables,
+      List<FilterAccessor<ITEM>> filterables) {
+    LambdaAccessor<ITEM, ?> lambdaAccessor = new LambdaAccessor<>(clazz, method.getName(), method.getReturnType());
+    if (itemKey != null) {
+      itemKeys.add(lambdaAccessor);
+    }
+    if (searchable != null) {
+      searchables.add(lambdaAccessor);
+    }
+    if (filterable != null) {
+      filterables.add(FilterAccessor.of(filterable.value(), filterable.type(), lambdaAccessor));
+    }
+  }
+
+  // the same names the processor looks for, a boolean isActive is read by isActive()
+  private static Method findGetterMethod(Class<?> clazz, Field field) {
+    String name = field.getName();
+    String capitalized = name.substring(0, 1)
+                             .toUpperCase()
+        + name.substring(1);
+    List<String> names = new ArrayList<>();
+    if (field.getType() == Boolean.TYPE) {
+      if (name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2))) {
+        names.add(name);
+      }
+      names.add("is" + capitalized);
+    }
+    names.add("get" + capitalized);
+    for (String getterMethod : names) {
+      try {
+        return clazz.getDeclaredMethod(getterMethod);
+      } catch (NoSuchMethodException e) {
+        // try the next name
+      }
+    }
+    return null;
+  }
+
+}
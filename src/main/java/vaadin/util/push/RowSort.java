@@ -0,0 +1,98 @@
+package vaadin.util.push;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// stable merge sort of row numbers, forked above the parallel threshold and without boxing the rows
+public class RowSort extends RecursiveAction {
+
+  private static final long serialVersionUID = -2283164512391855512L;
+
+  private static final int PARALLEL_THRESHOLD = Integer.getInteger(FilteredIndex.PARALLEL_THRESHOLD_PROPERTY, 50_000);
+  private static final int CHUNK_SIZE = Math.max(64, Integer.getInteger(FilteredIndex.CHUNK_SIZE_PROPERTY, 8192));
+  private static final int INSERTION_SORT_SIZE = 32;
+
+  public interface RowComparator {
+    int compare(int row1, int row2);
+  }
+
+  private final int[] _rows;
+  private final int[] _buffer;
+  private final RowComparator _comparator;
+  private final int _start;
+  private final int _end;
+
+  private RowSort(int[] rows, int[] buffer, RowComparator comparator, int start, int end) {
+    _rows = rows;
+    _buffer = buffer;
+    _comparator = comparator;
+    _start = start;
+    _end = end;
+  }
+
+  public static void sort(int[] rows, RowComparator comparator) {
+    RowSort task = new RowSort(rows, new int[rows.length], comparator, 0, rows.length);
+    if (rows.length >= PARALLEL_THRESHOLD) {
+      ForkJoinPool.commonPool()
+                  .invoke(task);
+    } else {
+      task.sort(0, rows.length);
+    }
+  }
+
+  @Override
+  protected void compute() {
+    if (_end - _start <= CHUNK_SIZE) {
+      sort(_start, _end);
+      return;
+    }
+    int middle = (_start + _end) >>> 1;
+    invokeAll(new RowSort(_rows, _buffer, _comparator, _start, middle),
+        new RowSort(_rows, _buffer, _comparator, middle, _end));
+    merge(_start, middle, _end);
+  }
+
+  private void sort(int start, int end) {
+    if (end - start <= INSERTION_SORT_SIZE) {
+      insertionSort(start, end);
+      return;
+    }
+    int middle = (start + end) >>> 1;
+    sort(start, middle);
+    sort(middle, end);
+    merge(start, middle, end);
+  }
+
+  private void insertionSort(int start, int end) {
+    for (int i = start + 1; i < end; i++) {
+      int row = _rows[i];
+      int j = i - 1;
+      while (j >= start && _comparator.compare(_rows[j], row) > 0) {
+        _rows[j + 1] = _rows[j];
+        j--;
+      }
+      _rows[j + 1] = row;
+    }
+  }
+
+  // each task only touches its own range of the buffer
+  private void merge(int start, int middle, int end) {
+    if (_comparator.compare(_rows[middle - 1], _rows[middle]) <= 0) {
+      return;
+    }
+    System.arraycopy(_rows, start, _buffer, start, end - start);
+    int i = start;
+    int j = middle;
+    int k = start;
+    while (i < middle && j < end) {
+      if (_comparator.compare(_buffer[j], _buffer[i]) < 0) {
+        _rows[k++] = _buffer[j++];
+      } else {
+        _rows[k++] = _buffer[i++];
+      }
+    }
+    System.arraycopy(_buffer, i, _rows, k, middle - i);
+    System.arraycopy(_buffer, j, _rows, k + middle - i, end - j);
+  }
+
+}
@@ -1,15 +1,12 @@
 package vaadin.util.push;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
 
-import lombok.SneakyThrows;
-import lombok.extern.slf4j.Slf4j;
 import vaadin.util.test.TestItem;
 
-@Slf4j
 public class SearchableType<TYPE> {
 
   public static void main(String[] args) {
@@ -22,62 +19,46 @@ public class SearchableType<TYPE> {
 
   }
 
-  private final List<LambdaAccessor<TYPE, ?>> _lambdaAccessors = new ArrayList<>();
+  private final List<LambdaAccessor<TYPE, ?>> _lambdaAccessors;
+  // by instance, an item manager replaces an item rather than changing it
+  private final ConcurrentMap<TYPE, String> _normalizedCache = new MapMaker().weakKeys()
+                                                                             .makeMap();
 
   public SearchableType(Class<TYPE> clazz) {
-    Field[] fields = clazz.getDeclaredFields();
-    for (Field field : fields) {
-      Searchable searchable = field.getAnnotation(Searchable.class);
-      if (searchable != null) {
-        String getterMethod = findGetterMethod(field);
-        Method method = findMethod(clazz, getterMethod);
-        if (method == null) {
-          log.error("Getter method for field {} not found", field.getName());
-        } else {
-          _lambdaAccessors.add(new LambdaAccessor<>(clazz, method.getName(), method.getReturnType()));
-        }
-      }
-    }
-    Method[] methods = clazz.getDeclaredMethods();
-    for (Method method : methods) {
-      Searchable searchable = method.getAnnotation(Searchable.class);
-      if (searchable != null) {
-        _lambdaAccessors.add(new LambdaAccessor<>(clazz, method.getName(), method.getReturnType()));
-      }
-    }
+    _lambdaAccessors = ItemMetadataLoader.get(clazz)
+                                         .getSearchables();
   }
 
   public String getSearchString(TYPE t) {
     StringBuilder builder = new StringBuilder();
     for (LambdaAccessor<TYPE, ?> lambdaAccessor : _lambdaAccessors) {
-      Object object = lambdaAccessor.getValue(t);
-      if (object != null) {
-        builder.append(object.toString())
-               .append(' ');
+      if (lambdaAccessor.appendTo(builder, t)) {
+        builder.append(' ');
       }
     }
     return builder.toString();
   }
 
-  @SneakyThrows
-  private Method findMethod(Class<TYPE> clazz, String getterMethod) {
-    try {
-      return clazz.getDeclaredMethod(getterMethod);
-    } catch (NoSuchMethodException e) {
-      return null;
+  public String getNormalizedSearchString(TYPE t) {
+    String normalized = _normalizedCache.get(t);
+    if (normalized == null) {
+      normalized = getSearchString(t).toLowerCase();
+      _normalizedCache.put(t, normalized);
     }
+    return normalized;
   }
 
-  private String findGetterMethod(Field field) {
-    Class<?> clazz = field.getType();
-    String name = field.getName();
-    name = name.substring(0, 1)
-               .toUpperCase()
-        + name.substring(1);
-    if (clazz == Boolean.TYPE) {
-      return "is" + name;
+  public boolean matches(TYPE t, List<String> tokens) {
+    if (tokens.isEmpty()) {
+      return true;
+    }
+    String lowerCase = getNormalizedSearchString(t);
+    for (String token : tokens) {
+      if (lowerCase.contains(token)) {
+        return true;
+      }
     }
-    return "get" + name;
+    return false;
   }
 
 }
@@ -0,0 +1,66 @@
+package vaadin.util.push;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+public class SortedIndex<ITEM> {
+
+  private final FilteredIndex<ITEM> _filteredIndex;
+  private final int[] _rows;
+  private final int[] _positions;
+
+  private SortedIndex(FilteredIndex<ITEM> filteredIndex, int[] rows) {
+    _filteredIndex = filteredIndex;
+    _rows = rows;
+    _positions = new int[filteredIndex.getSnapshot()
+                                      .size()];
+    Arrays.fill(_positions, -1);
+    for (int position = 0; position < rows.length; position++) {
+      _positions[rows[position]] = position;
+    }
+  }
+
+  public static <ITEM> SortedIndex<ITEM> create(FilteredIndex<ITEM> filteredIndex,
+      Comparator<? super ITEM> comparator) {
+    ItemSnapshot<ITEM> snapshot = filteredIndex.getSnapshot();
+    int[] rows = new int[filteredIndex.size()];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = filteredIndex.getRow(i);
+    }
+    RowSort.sort(rows, (r1, r2) -> comparator.compare(snapshot.get(r1), snapshot.get(r2)));
+    return new SortedIndex<>(filteredIndex, rows);
+  }
+
+  // keeps the order of a permutation the grid renders, ties included
+  public static <ITEM> SortedIndex<ITEM> of(FilteredIndex<ITEM> filteredIndex, int[] permutation) {
+    int[] rows = IntStream.of(permutation)
+                          .filter(filteredIndex::containsRow)
+                          .toArray();
+    return new SortedIndex<>(filteredIndex, rows);
+  }
+
+  public FilteredIndex<ITEM> getFilteredIndex() {
+    return _filteredIndex;
+  }
+
+  public int size() {
+    return _rows.length;
+  }
+
+  public ITEM get(int position) {
+    return _filteredIndex.getSnapshot()
+                         .get(_rows[position]);
+  }
+
+  // -1 when the item is not part of the sorted rows
+  public int positionOf(ITEM item) {
+    int row = _filteredIndex.getSnapshot()
+                            .indexOf(item);
+    if (row < 0) {
+      return -1;
+    }
+    return _positions[row];
+  }
+
+}
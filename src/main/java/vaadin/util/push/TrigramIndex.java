@@ -0,0 +1,200 @@
+package vaadin.util.push;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class TrigramIndex<ITEM> {
+
+  private static final int GRAM_LENGTH = 3;
+
+  private final SearchableType<ITEM> _searchableType;
+  private final Map<Long, Postings> _postings = new HashMap<>();
+  private final Map<ITEM, Integer> _ids = new HashMap<>();
+  private final List<ITEM> _items = new ArrayList<>();
+  private final BitSet _live = new BitSet();
+  private long _generation = -1;
+
+  private static class Postings {
+    int[] ids = new int[4];
+    int size;
+
+    void add(int id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+
+    BitSet toBitSet() {
+      BitSet bitSet = new BitSet();
+      for (int i = 0; i < size; i++) {
+        bitSet.set(ids[i]);
+      }
+      return bitSet;
+    }
+  }
+
+  public TrigramIndex(SearchableType<ITEM> searchableType) {
+    _searchableType = searchableType;
+  }
+
+  public synchronized void update(ItemSnapshot<ITEM> snapshot) {
+    if (snapshot.getGeneration() == _generation) {
+      return;
+    }
+    if (_items.size() > 2 * Math.max(snapshot.size(), 1024)) {
+      log.debug("compacting trigram index");
+      clear();
+    }
+    BitSet seen = new BitSet(_items.size());
+    int added = 0;
+    for (int row = 0; row < snapshot.size(); row++) {
+      ITEM item = snapshot.get(row);
+      Integer id = _ids.get(item);
+      if (id == null) {
+        id = add(item);
+        added++;
+      }
+      seen.set(id);
+    }
+    BitSet removed = (BitSet) _live.clone();
+    removed.andNot(seen);
+    for (int id = removed.nextSetBit(0); id >= 0; id = removed.nextSetBit(id + 1)) {
+      remove(id);
+    }
+    _generation = snapshot.getGeneration();
+    log.debug("trigram index updated added {} removed {}", added, removed.cardinality());
+  }
+
+  public synchronized void onItemDelta(ItemDelta<ITEM> delta) {
+    if (delta.getGeneration() <= _generation) {
+      // a resync already read a snapshot past it
+      return;
+    } else if (delta.getFromGeneration() != _generation) {
+      // missed a delta, the next query resyncs from its snapshot
+      _generation = -2;
+      return;
+    }
+    ItemDiff<ITEM> diff = delta.getDiff();
+    for (ITEM item : diff.getRemoved()) {
+      remove(item);
+    }
+    for (ITEM item : diff.getReplaced()) {
+      remove(item);
+    }
+    for (ITEM item : diff.getChanged()) {
+      if (!_ids.containsKey(item)) {
+        add(item);
+      }
+    }
+    for (ITEM item : diff.getAdded()) {
+      if (!_ids.containsKey(item)) {
+        add(item);
+      }
+    }
+    _generation = delta.getGeneration();
+    if (_items.size() > 2 * Math.max(_ids.size(), 1024)) {
+      log.debug("compacting trigram index");
+      clear();
+      _generation = -2;
+    }
+  }
+
+  // null when a token is too short to be answered from the index
+  public synchronized BitSet getCandidates(ItemSnapshot<ITEM> snapshot, List<String> tokens) {
+    for (String token : tokens) {
+      if (token.length() < GRAM_LENGTH) {
+        return null;
+      }
+    }
+    if (_generation == -2) {
+      // only a missed delta costs a pass over the snapshot, otherwise the deltas keep the index current
+      update(snapshot);
+    } else if (snapshot.getGeneration() != _generation) {
+      // ahead of this snapshot, or its deltas are still being delivered, let the caller scan
+      return null;
+    }
+    BitSet rows = new BitSet(snapshot.size());
+    for (String token : tokens) {
+      BitSet ids = getCandidateIds(token);
+      for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+        int row = snapshot.indexOf(_items.get(id));
+        if (row >= 0) {
+          rows.set(row);
+        }
+      }
+    }
+    return rows;
+  }
+
+  private BitSet getCandidateIds(String token) {
+    List<Postings> postingsList = new ArrayList<>();
+    for (long gram : getGrams(token)) {
+      Postings postings = _postings.get(gram);
+      if (postings == null) {
+        return new BitSet();
+      }
+      postingsList.add(postings);
+    }
+    postingsList.sort((p1, p2) -> Integer.compare(p1.size, p2.size));
+    BitSet ids = postingsList.get(0)
+                             .toBitSet();
+    for (int i = 1; i < postingsList.size() && !ids.isEmpty(); i++) {
+      ids.and(postingsList.get(i)
+                          .toBitSet());
+    }
+    ids.and(_live);
+    return ids;
+  }
+
+  private int add(ITEM item) {
+    int id = _items.size();
+    _items.add(item);
+    _ids.put(item, id);
+    _live.set(id);
+    for (long gram : getGrams(_searchableType.getNormalizedSearchString(item))) {
+      _postings.computeIfAbsent(gram, g -> new Postings())
+               .add(id);
+    }
+    return id;
+  }
+
+  private void remove(ITEM item) {
+    Integer id = _ids.get(item);
+    if (id != null) {
+      remove(id);
+    }
+  }
+
+  // postings keep the dead id until the next compaction
+  private void remove(int id) {
+    _ids.remove(_items.get(id));
+    _items.set(id, null);
+    _live.clear(id);
+  }
+
+  private void clear() {
+    _postings.clear();
+    _ids.clear();
+    _items.clear();
+    _live.clear();
+  }
+
+  private static Set<Long> getGrams(String s) {
+    Set<Long> grams = new HashSet<>();
+    for (int i = 0; i + GRAM_LENGTH <= s.length(); i++) {
+      grams.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+    }
+    return grams;
+  }
+
+}
@@ -1,6 +1,7 @@
 package vaadin.util.task;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -10,6 +11,7 @@ import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.shared.Registration;
 
 import lombok.extern.slf4j.Slf4j;
 import tack.manager.app.TestMode;
@@ -24,6 +26,8 @@ public abstract class BaseTaskView extends BasePushView<Task> {
 
   private static final TaskManager TASK_MANAGER = TaskManager.INSTANCE;
 
+  private Registration _progressRegistration;
+
   public BaseTaskView() {
     super(TASK_MANAGER);
   }
@@ -99,12 +103,27 @@ public abstract class BaseTaskView extends BasePushView<Task> {
   protected void onAttach(AttachEvent attachEvent) {
     super.onAttach(attachEvent);
     TASK_MANAGER.register(this);
+    if (_progressRegistration == null) {
+      _progressRegistration = TASK_MANAGER.addProgressListener(this::onTaskProgress);
+    }
   }
 
   @Override
   protected void onDetach(DetachEvent detachEvent) {
     super.onDetach(detachEvent);
     TASK_MANAGER.deregister(this);
+    if (_progressRegistration != null) {
+      _progressRegistration.remove();
+      _progressRegistration = null;
+    }
+  }
+
+  // only the progress bar changed, so the row is redrawn without a new generation
+  private void onTaskProgress(String taskId) {
+    Task task = TASK_MANAGER.getItemByKey(taskId);
+    if (task != null) {
+      refreshRows(Collections.singletonList(task));
+    }
   }
 
   protected abstract String getCurrentUser();
@@ -10,8 +10,10 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.Value;
+import vaadin.util.filter.FilterType;
 import vaadin.util.filter.Filterable;
 import vaadin.util.push.Item;
+import vaadin.util.push.ItemKey;
 import vaadin.util.push.Searchable;
 
 @Value
@@ -22,12 +24,14 @@ import vaadin.util.push.Searchable;
 public class Task implements Item<Task> {
 
   @Builder.Default
+  @ItemKey
   @Searchable
   String id = UUID.randomUUID()
                   .toString();
 
   @Builder.Default
   @Searchable
+  @Filterable(value = "Created", type = FilterType.RANGE)
   Date created = new Date();
 
   @Searchable
@@ -3,35 +3,47 @@ package vaadin.util.task;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
 import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.shared.Registration;
 
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import vaadin.util.push.ItemDiff;
 import vaadin.util.push.ItemManager;
 import vaadin.util.push.PushComponent;
 
 @Slf4j
 public class TaskManager extends ItemManager<Task> {
 
+  public static final String PROGRESS_INTERVAL_PROPERTY = "vaadin.util.task.progressInterval";
+
   public static final TaskManager INSTANCE = new TaskManager();
 
+  // progress is not part of the task item, so a tick reaches the listeners at most this often and never the deltas
+  private static final long PROGRESS_INTERVAL = Long.getLong(PROGRESS_INTERVAL_PROPERTY, 500);
+
   private final ExecutorService _service;
   private final Map<String, TaskState> _stateMap = new ConcurrentHashMap<>();
   private final Set<PushComponent> _pushCache;
+  private final List<TaskProgressListener> _progressListeners = new CopyOnWriteArrayList<>();
 
   @Data
   public static class TaskState {
@@ -43,6 +55,7 @@ public class TaskManager extends ItemManager<Task> {
     AtomicBoolean canceled = new AtomicBoolean();
     Throwable throwable;
     long stopped = -1;
+    long progressReported;
 
     public boolean isCanceled() {
       return canceled.get();
@@ -63,30 +76,35 @@ public class TaskManager extends ItemManager<Task> {
   }
 
   public synchronized void submitTask(Task task) {
+    cleanupOldJobs();
     String id = task.getId();
     TaskState state = new TaskState();
     state.setTask(task);
     state.setTaskStatus(TaskStatus.RUNNING);
-    _stateMap.put(id, state);
+    itemsChanged(() -> {
+      _stateMap.put(id, state);
+      return ItemDiff.of(this::getItemKey, ImmutableList.of(toItem(state)), ImmutableList.of(),
+          ImmutableMap.of());
+    });
     state.setFuture(_service.submit(() -> {
       try {
         String name = task.getName();
         Thread.currentThread()
               .setName("Task [" + name + "] Task Id [" + id + "]");
         task.getTaskRunnable()
-            .call(() -> state.isCanceled(), progress -> state.setProgress(progress));
+            .call(() -> state.isCanceled(), progress -> setProgress(state, progress));
         if (!state.isCanceled()) {
-          state.setTaskStatus(TaskStatus.COMPLETED);
+          setTaskStatus(state, TaskStatus.COMPLETED);
         } else {
-          state.setTaskStatus(TaskStatus.CANCELED);
+          setTaskStatus(state, TaskStatus.CANCELED);
         }
       } catch (Throwable t) {
         if (!state.isCanceled()) {
           log.error("Unknown error", t);
-          state.setTaskStatus(TaskStatus.FAILED);
           state.setThrowable(t);
+          setTaskStatus(state, TaskStatus.FAILED);
         } else {
-          state.setTaskStatus(TaskStatus.CANCELED);
+          setTaskStatus(state, TaskStatus.CANCELED);
         }
       }
       state.setStopped(System.currentTimeMillis());
@@ -97,6 +115,45 @@ public class TaskManager extends ItemManager<Task> {
     updateFilterValues();
   }
 
+  public Registration addProgressListener(TaskProgressListener listener) {
+    _progressListeners.add(listener);
+    return () -> _progressListeners.remove(listener);
+  }
+
+  private void setProgress(TaskState state, double progress) {
+    state.setProgress(progress);
+    long now = System.currentTimeMillis();
+    if (now - state.getProgressReported() < PROGRESS_INTERVAL) {
+      return;
+    }
+    state.setProgressReported(now);
+    String id = state.getTask()
+                     .getId();
+    for (TaskProgressListener listener : _progressListeners) {
+      try {
+        listener.onTaskProgress(id);
+      } catch (Throwable t) {
+        log.error("Unknown error while reporting progress of {}", id, t);
+      }
+    }
+  }
+
+  private void setTaskStatus(TaskState state, TaskStatus taskStatus) {
+    itemsChanged(() -> {
+      Task previous = toItem(state);
+      state.setTaskStatus(taskStatus);
+      return ItemDiff.of(this::getItemKey, ImmutableList.of(), ImmutableList.of(),
+          ImmutableMap.of(previous, toItem(state)));
+    });
+  }
+
+  private Task toItem(TaskState state) {
+    return state.getTask()
+                .toBuilder()
+                .taskStatus(state.getTaskStatus())
+                .build();
+  }
+
   private synchronized void updateCounts() {
     for (PushComponent pushComponent : ImmutableSet.copyOf(_pushCache)) {
       doPush(pushComponent);
@@ -146,21 +203,24 @@ public class TaskManager extends ItemManager<Task> {
       if (taskState.getStopped() >= 0
           && taskState.getStopped() + TimeUnit.HOURS.toMillis(1) < System.currentTimeMillis()) {
         log.info("removing old task {}", entry.getKey());
-        _stateMap.remove(entry.getKey());
+        itemsChanged(() -> {
+          if (_stateMap.remove(entry.getKey(), taskState)) {
+            return ItemDiff.of(this::getItemKey, ImmutableList.of(), ImmutableList.of(toItem(taskState)),
+                ImmutableMap.of());
+          }
+          return ItemDiff.empty();
+        });
       }
     }
   }
 
   @Override
   public List<Task> getItems() {
-    cleanupOldJobs();
+    // old jobs are cleaned up elsewhere, a removal here would race the snapshot being built
     Collection<TaskState> values = _stateMap.values();
     List<Task> tasks = new ArrayList<>();
     for (TaskState state : values) {
-      tasks.add(state.getTask()
-                     .toBuilder()
-                     .taskStatus(state.getTaskStatus())
-                     .build());
+      tasks.add(toItem(state));
     }
     return new ArrayList<>(tasks);
   }
@@ -174,15 +234,30 @@ public class TaskManager extends ItemManager<Task> {
   }
 
   public void cancelTasks(Collection<Task> tasks) {
-    for (Task task : tasks) {
-      TaskState taskState = _stateMap.get(task.getId());
+    List<TaskState> taskStates = new ArrayList<>();
+    itemsChanged(() -> {
+      Map<Task, Task> updated = new HashMap<>();
+      for (Task task : tasks) {
+        TaskState taskState = _stateMap.get(task.getId());
+        if (taskState == null || taskState.getTaskStatus() != TaskStatus.RUNNING) {
+          // cleaned up since it was selected, or already finished or canceling
+          continue;
+        }
+        taskState.getCanceled()
+                 .set(true);
+        Task previous = toItem(taskState);
+        taskState.setTaskStatus(TaskStatus.CANCELING);
+        updated.put(previous, toItem(taskState));
+        taskStates.add(taskState);
+      }
+      return ItemDiff.of(this::getItemKey, ImmutableList.of(), ImmutableList.of(), updated);
+    });
+    // interrupt outside of the snapshot lock, the task reports its final status through it
+    for (TaskState taskState : taskStates) {
       Future<?> future = taskState.getFuture();
       if (future != null) {
         future.cancel(true);
       }
-      taskState.getCanceled()
-               .set(true);
-      taskState.setTaskStatus(TaskStatus.CANCELING);
     }
   }
 
@@ -0,0 +1,7 @@
+package vaadin.util.task;
+
+public interface TaskProgressListener {
+
+  void onTaskProgress(String taskId);
+
+}
@@ -0,0 +1,44 @@
+package vaadin.util.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import vaadin.util.push.ItemDiff;
+
+// times a diff and its apply for a refresh that replaces one percent of the items
+public class ItemDiffBenchmark {
+
+  public static void main(String[] args) {
+    Random random = new Random(1);
+    TestEnum[] values = TestEnum.values();
+    for (int size : new int[] { 10_000, 100_000, 1_000_000 }) {
+      List<TestItem> currentItems = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        currentItems.add(TestItem.builder()
+                                 .testEnum(values[random.nextInt(values.length)])
+                                 .build());
+      }
+      List<TestItem> dataItems = new ArrayList<>(currentItems.subList(size / 100, size));
+      for (int i = 0; i < size / 100; i++) {
+        dataItems.add(TestItem.builder()
+                              .testEnum(values[random.nextInt(values.length)])
+                              .build());
+      }
+      for (int run = 0; run < 3; run++) {
+        List<TestItem> items = new ArrayList<>(currentItems);
+        long start = System.nanoTime();
+        ItemDiff<TestItem> diff = ItemDiff.diff(items, dataItems);
+        diff.applyTo(items);
+        long end = System.nanoTime();
+        System.out.println("items [" + size + "] added [" + diff.getAdded()
+                                                                .size()
+            + "] removed [" + diff.getRemoved()
+                                  .size()
+            + "] push prep [" + TimeUnit.NANOSECONDS.toMillis(end - start) + " ms]");
+      }
+    }
+  }
+
+}
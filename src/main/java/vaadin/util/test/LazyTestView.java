@@ -0,0 +1,39 @@
+package vaadin.util.test;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableList.Builder;
+import com.vaadin.flow.component.grid.Grid;
+
+import vaadin.util.action.Action;
+import vaadin.util.push.BasePushView;
+import vaadin.util.push.GridBuilder;
+
+// the test items through the lazy data provider, which pages them from the item manager
+public class LazyTestView extends BasePushView<TestItem> {
+
+  private static final long serialVersionUID = 2871468301526093742L;
+
+  private static final TestManager TEST_MANAGER = TestManager.INSTANCE;
+
+  public LazyTestView() {
+    super(TEST_MANAGER, true);
+  }
+
+  @Override
+  protected List<Action> getActions() {
+    Builder<Action> builder = ImmutableList.<Action>builder();
+    builder.add(asyncAction("Delete", TEST_MANAGER::delete).build());
+    return builder.build();
+  }
+
+  @Override
+  protected Grid<TestItem> createGrid(GridBuilder<TestItem> builder) {
+    return builder.add("Name", TestItem::getName)
+                  .add("Id", TestItem::getId)
+                  .add("Value", TestItem::getValue)
+                  .add("Test", TestItem::getTestEnum)
+                  .build();
+  }
+}
@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
 import lombok.Value;
 import vaadin.util.filter.Filterable;
 import vaadin.util.push.Item;
+import vaadin.util.push.ItemKey;
 import vaadin.util.push.Searchable;
 
 @Value
@@ -21,6 +22,7 @@ import vaadin.util.push.Searchable;
 public class TestItem implements Item<TestItem> {
 
   @Builder.Default
+  @ItemKey
   @Searchable
   String id = UUID.randomUUID()
                   .toString();
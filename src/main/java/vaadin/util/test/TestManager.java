@@ -2,21 +2,23 @@ package vaadin.util.test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
-import vaadin.util.filter.Filter;
-import vaadin.util.filter.FilterInfo;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import vaadin.util.push.ItemDiff;
 import vaadin.util.push.ItemManager;
-import vaadin.util.push.PushComponent;
 
 public class TestManager extends ItemManager<TestItem> {
 
   public static final TestManager INSTANCE = new TestManager();
 
   private final AtomicReference<List<TestItem>> _itemsRef = new AtomicReference<>();
-  private final FilterInfo<TestItem> _filterInfo;
 
   private TestManager() {
     Random random = new Random();
@@ -28,8 +30,6 @@ public class TestManager extends ItemManager<TestItem> {
                         .build());
     }
     _itemsRef.set(items);
-    _filterInfo = new FilterInfo<>(TestItem.class);
-    _filterInfo.updatePossibleValues(items);
   }
 
   @Override
@@ -38,16 +38,25 @@ public class TestManager extends ItemManager<TestItem> {
   }
 
   public void delete(Collection<TestItem> items) {
-    _itemsRef.get()
-             .removeAll(items);
+    Set<Object> keys = new HashSet<>();
+    for (TestItem item : items) {
+      keys.add(getItemKey(item));
+    }
+    itemsChanged(() -> {
+      List<TestItem> removed = new ArrayList<>();
+      _itemsRef.get()
+               .removeIf(item -> keys.contains(getItemKey(item)) && removed.add(item));
+      return ItemDiff.of(this::getItemKey, ImmutableList.of(), removed, ImmutableMap.of());
+    });
   }
 
-  public List<Filter<TestItem>> getFilters(PushComponent pushComponent) {
-    return _filterInfo.getFilters(pushComponent);
+  @Override
+  protected boolean doUpdateData() {
+    return true;
   }
 
   @Override
-  protected boolean doUpdateData() {
+  protected boolean isSearchIndexEnabled() {
     return true;
   }
 
@@ -1,7 +1,6 @@
 package vaadin.util.test;
 
 import java.util.List;
-import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
@@ -24,10 +23,7 @@ public class TestView extends BasePushView<TestItem> {
   @Override
   protected List<Action> getActions() {
     Builder<Action> builder = ImmutableList.<Action>builder();
-    builder.add(Action.builder()
-                      .listener(event -> deleteItems())
-                      .name("Delete")
-                      .build());
+    builder.add(asyncAction("Delete", TEST_MANAGER::delete).build());
     return builder.build();
   }
 
@@ -44,9 +40,4 @@ public class TestView extends BasePushView<TestItem> {
                   .add("Id5", TestItem::getId)
                   .build();
   }
-
-  private void deleteItems() {
-    Set<TestItem> items = getSelectedItems();
-    TEST_MANAGER.delete(items);
-  }
 }
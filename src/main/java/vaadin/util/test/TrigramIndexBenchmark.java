@@ -0,0 +1,39 @@
+package vaadin.util.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import vaadin.util.push.ItemSnapshot;
+import vaadin.util.push.SearchableType;
+import vaadin.util.push.TrigramIndex;
+
+// times building the search index over a million items and looking up a token
+public class TrigramIndexBenchmark {
+
+  public static void main(String[] args) {
+    SearchableType<TestItem> searchableType = new SearchableType<>(TestItem.class);
+    List<TestItem> items = new ArrayList<>();
+    for (int i = 0; i < 1_000_000; i++) {
+      items.add(TestItem.builder()
+                        .build());
+    }
+    ItemSnapshot<TestItem> snapshot = new ItemSnapshot<>(1, items);
+    TrigramIndex<TestItem> index = new TrigramIndex<>(searchableType);
+    long start = System.nanoTime();
+    index.update(snapshot);
+    System.out.println("build [" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms]");
+    String token = items.get(500_000)
+                        .getId()
+                        .substring(4, 12);
+    for (int run = 0; run < 5; run++) {
+      start = System.nanoTime();
+      BitSet candidates = index.getCandidates(snapshot, Arrays.asList(token));
+      System.out.println("search [" + token + "] candidates [" + candidates.cardinality() + "] ["
+          + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + " us]");
+    }
+  }
+
+}
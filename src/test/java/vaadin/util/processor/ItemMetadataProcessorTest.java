@@ -0,0 +1,147 @@
+package vaadin.util.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import vaadin.util.filter.FilterAccessor;
+import vaadin.util.push.ItemMetadata;
+import vaadin.util.push.ItemMetadataLoader;
+import vaadin.util.push.LambdaAccessor;
+
+public class ItemMetadataProcessorTest {
+
+  private static final String SAMPLE_ITEM_SOURCE = "src/test/java/vaadin/util/processor/SampleItem.java";
+
+  private static final String BROKEN_ITEM = "package sample;\n"
+      + "import vaadin.util.push.Searchable;\n"
+      + "public class BrokenItem {\n"
+      + "  @Searchable private String hidden;\n"
+      + "  @Searchable private String missing;\n"
+      + "  private String getHidden() { return hidden; }\n"
+      + "}\n";
+
+  @Rule
+  public TemporaryFolder _folder = new TemporaryFolder();
+
+  @Test
+  public void testGeneratedMetadataMatchesReflection() throws Exception {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    File outputDir = compile(new File(System.getProperty("basedir", "."), SAMPLE_ITEM_SOURCE), diagnostics);
+    assertEquals(Collections.emptyList(), getErrors(diagnostics));
+
+    // the build compiles SampleItem without the processor, so the loader falls back to reflection
+    ItemMetadata<SampleItem> reflectedMetadata = ItemMetadataLoader.get(SampleItem.class);
+    // the generated class resolves SampleItem through the parent, so both read the same item class
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] { outputDir.toURI()
+                                                                              .toURL() },
+        getClass().getClassLoader())) {
+      Class<?> metadataClass = classLoader.loadClass(SampleItem.class.getName() + ItemMetadata.SUFFIX);
+      @SuppressWarnings("unchecked")
+      ItemMetadata<SampleItem> generatedMetadata = (ItemMetadata<SampleItem>) metadataClass.newInstance();
+      assertNotEquals(generatedMetadata.getClass(), reflectedMetadata.getClass());
+
+      SampleItem item = new SampleItem();
+      assertNotNull(generatedMetadata.getItemKey());
+      assertAccessor(reflectedMetadata.getItemKey(), generatedMetadata.getItemKey(), item);
+
+      List<LambdaAccessor<SampleItem, ?>> reflectedSearchables = reflectedMetadata.getSearchables();
+      List<LambdaAccessor<SampleItem, ?>> generatedSearchables = generatedMetadata.getSearchables();
+      assertEquals(5, generatedSearchables.size());
+      assertEquals(reflectedSearchables.size(), generatedSearchables.size());
+      for (int i = 0; i < generatedSearchables.size(); i++) {
+        assertAccessor(reflectedSearchables.get(i), generatedSearchables.get(i), item);
+      }
+
+      List<FilterAccessor<SampleItem>> reflectedFilterables = reflectedMetadata.getFilterables();
+      List<FilterAccessor<SampleItem>> generatedFilterables = generatedMetadata.getFilterables();
+      assertEquals(5, generatedFilterables.size());
+      assertEquals(reflectedFilterables.size(), generatedFilterables.size());
+      for (int i = 0; i < generatedFilterables.size(); i++) {
+        FilterAccessor<SampleItem> reflectedFilterable = reflectedFilterables.get(i);
+        FilterAccessor<SampleItem> generatedFilterable = generatedFilterables.get(i);
+        assertEquals(reflectedFilterable.getName(), generatedFilterable.getName());
+        assertEquals(reflectedFilterable.getType(), generatedFilterable.getType());
+        assertAccessor(reflectedFilterable.getLambdaAccessor(), generatedFilterable.getLambdaAccessor(), item);
+      }
+    }
+  }
+
+  @Test
+  public void testMissingGetterIsReported() throws Exception {
+    File sourceFile = new File(_folder.newFolder(), "BrokenItem.java");
+    Files.write(sourceFile.toPath(), BROKEN_ITEM.getBytes(StandardCharsets.UTF_8));
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    compile(sourceFile, diagnostics);
+    List<String> errors = getErrors(diagnostics);
+    assertEquals(errors.toString(), 2, errors.size());
+    assertTrue(errors.get(0), errors.get(0)
+                                    .contains("hidden"));
+    assertTrue(errors.get(1), errors.get(1)
+                                    .contains("missing"));
+  }
+
+  private static void assertAccessor(LambdaAccessor<SampleItem, ?> reflected,
+      LambdaAccessor<SampleItem, ?> generated, SampleItem item) {
+    assertEquals(reflected.getValueType(), generated.getValueType());
+    assertEquals(reflected.isPrimitive(), generated.isPrimitive());
+    assertEquals(reflected.getValue(item), generated.getValue(item));
+    StringBuilder reflectedText = new StringBuilder();
+    StringBuilder generatedText = new StringBuilder();
+    reflected.appendTo(reflectedText, item);
+    generated.appendTo(generatedText, item);
+    assertEquals(reflectedText.toString(), generatedText.toString());
+  }
+
+  // runs the processor over the source, the generated classes end up in the returned directory
+  private File compile(File sourceFile, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+    File outputDir = _folder.newFolder();
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assertNotNull("tests must run on a JDK", compiler);
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null,
+        StandardCharsets.UTF_8)) {
+      List<String> options = Arrays.asList("-d", outputDir.getPath(), "-s", outputDir.getPath(), "-classpath",
+          System.getProperty("java.class.path"));
+      CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+          fileManager.getJavaFileObjects(sourceFile));
+      task.setProcessors(Arrays.asList(new ItemMetadataProcessor()));
+      task.call();
+    }
+    return outputDir;
+  }
+
+  private static List<String> getErrors(DiagnosticCollector<JavaFileObject> diagnostics) {
+    List<String> errors = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(diagnostic.getMessage(null));
+      }
+    }
+    return errors;
+  }
+
+}
@@ -0,0 +1,71 @@
+package vaadin.util.processor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import vaadin.util.filter.FilterType;
+import vaadin.util.filter.Filterable;
+import vaadin.util.push.ItemKey;
+import vaadin.util.push.Searchable;
+
+// compiled by the test with the processor, and by the build without it so it is read by reflection
+public class SampleItem {
+
+  @ItemKey
+  @Searchable
+  private String id = "item-1";
+
+  @Searchable
+  @Filterable("Active")
+  private boolean isActive = true;
+
+  @Filterable("Done")
+  private boolean done;
+
+  @Filterable(value = "Count", type = FilterType.RANGE)
+  private int count = 42;
+
+  @Searchable
+  private char code = 'x';
+
+  @Filterable(value = "Size", type = FilterType.RANGE)
+  private double size = 1.5;
+
+  @Searchable
+  private long created = 1234567890123L;
+
+  public String getId() {
+    return id;
+  }
+
+  public boolean isActive() {
+    return isActive;
+  }
+
+  public boolean isDone() {
+    return done;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public char getCode() {
+    return code;
+  }
+
+  public double getSize() {
+    return size;
+  }
+
+  public long getCreated() {
+    return created;
+  }
+
+  @Searchable
+  @Filterable("Tags")
+  public List<String> getTags() {
+    return Arrays.asList("a", "b");
+  }
+
+}
@@ -0,0 +1,106 @@
+package vaadin.util.push;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+// the build forks the filter tasks from a size of one in chunks of 64 rows, see the surefire properties in the pom
+public class FilteredIndexTest {
+
+  private static final int[] SIZES = { 0, 1, 63, 64, 65, 127, 128, 129, 191, 192, 193, 1000 };
+
+  private final Random _random = new Random(1);
+
+  @Test
+  public void testCreateMatchesSequentialFilter() {
+    for (int size : SIZES) {
+      ItemSnapshot<Integer> snapshot = snapshot(size);
+      for (Predicate<Integer> predicate : predicates(size)) {
+        FilteredIndex<Integer> filteredIndex = FilteredIndex.create(snapshot, predicate);
+        assertRows(size, filter(snapshot, predicate, null), filteredIndex);
+      }
+    }
+  }
+
+  @Test
+  public void testCreateWithCandidatesMatchesSequentialFilter() {
+    for (int size : SIZES) {
+      ItemSnapshot<Integer> snapshot = snapshot(size);
+      BitSet candidates = randomBitSet(size);
+      for (Predicate<Integer> predicate : predicates(size)) {
+        FilteredIndex<Integer> filteredIndex = FilteredIndex.create(snapshot, candidates, predicate);
+        assertRows(size, filter(snapshot, predicate, candidates), filteredIndex);
+      }
+    }
+  }
+
+  @Test
+  public void testAndMatchesSequentialFilter() {
+    for (int size : SIZES) {
+      ItemSnapshot<Integer> snapshot = snapshot(size);
+      Predicate<Integer> even = i -> i % 2 == 0;
+      FilteredIndex<Integer> filteredIndex = FilteredIndex.create(snapshot, even);
+      for (Predicate<Integer> predicate : predicates(size)) {
+        assertRows(size, filter(snapshot, even.and(predicate), null), filteredIndex.and(predicate));
+      }
+    }
+  }
+
+  private void assertRows(int size, List<Integer> expected, FilteredIndex<Integer> filteredIndex) {
+    assertEquals("size " + size, expected, filteredIndex.stream()
+                                                        .collect(Collectors.toList()));
+    assertEquals("size " + size, expected.size(), filteredIndex.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i), filteredIndex.get(i));
+    }
+  }
+
+  // the items are their rows, so the expected rows are the matching items
+  private static List<Integer> filter(ItemSnapshot<Integer> snapshot, Predicate<Integer> predicate,
+      BitSet candidates) {
+    List<Integer> rows = new ArrayList<>();
+    for (int row = 0; row < snapshot.size(); row++) {
+      if ((candidates == null || candidates.get(row)) && predicate.test(snapshot.get(row))) {
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+
+  private List<Predicate<Integer>> predicates(int size) {
+    List<Predicate<Integer>> predicates = new ArrayList<>();
+    predicates.add(i -> true);
+    predicates.add(i -> false);
+    predicates.add(i -> i % 3 != 0);
+    // the last row of each chunk and the first of the next
+    predicates.add(i -> i % 64 == 63 || i % 64 == 0);
+    BitSet bitSet = randomBitSet(size);
+    predicates.add(bitSet::get);
+    return predicates;
+  }
+
+  private BitSet randomBitSet(int size) {
+    BitSet bitSet = new BitSet(size);
+    for (int row = 0; row < size; row++) {
+      if (_random.nextBoolean()) {
+        bitSet.set(row);
+      }
+    }
+    return bitSet;
+  }
+
+  private static ItemSnapshot<Integer> snapshot(int size) {
+    return new ItemSnapshot<>(1, IntStream.range(0, size)
+                                          .boxed()
+                                          .collect(Collectors.toList()));
+  }
+
+}
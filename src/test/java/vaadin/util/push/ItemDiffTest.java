@@ -0,0 +1,103 @@
+package vaadin.util.push;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import vaadin.util.test.TestItem;
+
+public class ItemDiffTest {
+
+  private static final Function<TestItem, ?> KEY = TestItem::getId;
+
+  private static final TestItem A = item("a", "1");
+  private static final TestItem B = item("b", "1");
+  private static final TestItem C = item("c", "1");
+
+  @Test
+  public void testAddThenRemoveNetsToNothing() {
+    TestItem d = item("d", "1");
+    List<TestItem> items = Arrays.asList(A, B);
+    List<ItemDiff<TestItem>> diffs = Arrays.asList(added(d), removed(d));
+    assertEquals(items, applyAll(items, diffs));
+  }
+
+  @Test
+  public void testRemoveThenAddReplacesTheItem() {
+    TestItem b2 = item("b", "2");
+    List<TestItem> items = Arrays.asList(A, B, C);
+    List<ItemDiff<TestItem>> diffs = Arrays.asList(removed(B), added(b2));
+    List<TestItem> result = applyAll(items, diffs);
+    assertEquals(Arrays.asList(A, C, b2), result);
+
+    ItemDiff<TestItem> diff = ItemDiff.diff(items, result, KEY);
+    assertEquals(Collections.emptyList(), diff.getAdded());
+    assertEquals(Collections.emptyList(), diff.getRemoved());
+    assertEquals(Collections.singletonList(b2), new ArrayList<>(diff.getChanged()));
+    assertEquals(Collections.singletonList(B), new ArrayList<>(diff.getReplaced()));
+  }
+
+  @Test
+  public void testChainOfChangesCollapses() {
+    TestItem b2 = item("b", "2");
+    TestItem b3 = item("b", "3");
+    TestItem b4 = item("b", "4");
+    List<TestItem> items = Arrays.asList(A, B, C);
+    List<ItemDiff<TestItem>> diffs = Arrays.asList(changed(B, b2), changed(b2, b3), changed(b3, b4));
+    List<TestItem> result = applyAll(items, diffs);
+    assertEquals(Arrays.asList(A, b4, C), result);
+
+    ItemDiff<TestItem> diff = ItemDiff.diff(items, result, KEY);
+    assertEquals(Collections.singletonList(b4), new ArrayList<>(diff.getChanged()));
+    assertEquals(Collections.singletonList(B), new ArrayList<>(diff.getReplaced()));
+  }
+
+  @Test
+  public void testChangeOfAddedItemStaysAdded() {
+    TestItem d = item("d", "1");
+    TestItem d2 = item("d", "2");
+    List<TestItem> items = Arrays.asList(A, B);
+    List<ItemDiff<TestItem>> diffs = Arrays.asList(added(d), changed(d, d2));
+    assertEquals(Arrays.asList(A, B, d2), applyAll(items, diffs));
+  }
+
+  // the fold must give the same items as applying the diffs one at a time
+  private static List<TestItem> applyAll(List<TestItem> items, List<ItemDiff<TestItem>> diffs) {
+    List<TestItem> sequential = new ArrayList<>(items);
+    for (ItemDiff<TestItem> diff : diffs) {
+      diff.applyTo(sequential);
+    }
+    List<TestItem> result = ItemDiff.applyAll(items, diffs, KEY);
+    assertEquals(sequential, result);
+    return result;
+  }
+
+  private static ItemDiff<TestItem> added(TestItem item) {
+    return ItemDiff.of(KEY, Collections.singletonList(item), Collections.emptyList(), ImmutableMap.of());
+  }
+
+  private static ItemDiff<TestItem> removed(TestItem item) {
+    return ItemDiff.of(KEY, Collections.emptyList(), Collections.singletonList(item), ImmutableMap.of());
+  }
+
+  private static ItemDiff<TestItem> changed(TestItem previous, TestItem item) {
+    return ItemDiff.of(KEY, Collections.emptyList(), Collections.emptyList(), ImmutableMap.of(previous, item));
+  }
+
+  static TestItem item(String id, String value) {
+    return TestItem.builder()
+                   .id(id)
+                   .name(id)
+                   .value(value)
+                   .build();
+  }
+
+}
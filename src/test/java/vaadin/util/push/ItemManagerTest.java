@@ -0,0 +1,183 @@
+package vaadin.util.push;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static vaadin.util.push.ItemDiffTest.item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import vaadin.util.test.TestItem;
+
+public class ItemManagerTest {
+
+  private TestItemManager _itemManager;
+  private List<ItemDelta<TestItem>> _deltas;
+
+  private static class TestItemManager extends ItemManager<TestItem> {
+
+    private final Map<String, TestItem> _items = new LinkedHashMap<>();
+
+    void add(TestItem item) {
+      itemsChanged(() -> {
+        _items.put(item.getId(), item);
+        return ItemDiff.of(this::getItemKey, ImmutableList.of(item), ImmutableList.of(), ImmutableMap.of());
+      });
+    }
+
+    void remove(TestItem item) {
+      itemsChanged(() -> {
+        _items.remove(item.getId());
+        return ItemDiff.of(this::getItemKey, ImmutableList.of(), ImmutableList.of(item), ImmutableMap.of());
+      });
+    }
+
+    void change(TestItem previous, TestItem item) {
+      itemsChanged(() -> {
+        _items.put(item.getId(), item);
+        return ItemDiff.of(this::getItemKey, ImmutableList.of(), ImmutableList.of(), ImmutableMap.of(previous, item));
+      });
+    }
+
+    @Override
+    public Collection<TestItem> getItems() {
+      return new ArrayList<>(_items.values());
+    }
+
+    @Override
+    protected boolean doUpdateData() {
+      return true;
+    }
+
+    @Override
+    protected long getUpdatePeriod() {
+      return -1;
+    }
+  }
+
+  @Before
+  public void setUp() {
+    _itemManager = new TestItemManager();
+    _deltas = new ArrayList<>();
+    _itemManager.addItemDeltaListener(_deltas::add);
+  }
+
+  @Test
+  public void testAddThenRemoveNetsToNothing() {
+    TestItem a = item("a", "1");
+    TestItem b = item("b", "1");
+    _itemManager.add(a);
+    ItemSnapshot<TestItem> previous = takeSnapshot();
+
+    _itemManager.add(b);
+    _itemManager.remove(b);
+    ItemSnapshot<TestItem> snapshot = takeSnapshot();
+    assertEquals(Collections.singletonList(a), snapshot.getItems());
+    assertPublished(previous, snapshot, 2);
+    assertTrue(ItemDiff.diff(previous.getItems(), snapshot.getItems(), TestItem::getId)
+                       .isEmpty());
+  }
+
+  @Test
+  public void testRemoveThenAddBecomesChange() {
+    TestItem a = item("a", "1");
+    TestItem b = item("b", "1");
+    TestItem b2 = item("b", "2");
+    _itemManager.add(a);
+    _itemManager.add(b);
+    ItemSnapshot<TestItem> previous = takeSnapshot();
+
+    _itemManager.remove(b);
+    _itemManager.add(b2);
+    ItemSnapshot<TestItem> snapshot = takeSnapshot();
+    assertEquals(Arrays.asList(a, b2), snapshot.getItems());
+    assertSame(b2, snapshot.getByKey("b"));
+    assertPublished(previous, snapshot, 2);
+    ItemDiff<TestItem> diff = ItemDiff.diff(previous.getItems(), snapshot.getItems(), TestItem::getId);
+    assertEquals(Collections.emptyList(), diff.getAdded());
+    assertEquals(Collections.emptyList(), diff.getRemoved());
+    assertEquals(Collections.singletonList(b2), new ArrayList<>(diff.getChanged()));
+  }
+
+  @Test
+  public void testChainOfChangesCollapses() {
+    TestItem a = item("a", "1");
+    TestItem a2 = item("a", "2");
+    TestItem a3 = item("a", "3");
+    TestItem b = item("b", "1");
+    _itemManager.add(a);
+    _itemManager.add(b);
+    ItemSnapshot<TestItem> previous = takeSnapshot();
+
+    _itemManager.change(a, a2);
+    _itemManager.change(a2, a3);
+    ItemSnapshot<TestItem> snapshot = takeSnapshot();
+    assertEquals(Arrays.asList(a3, b), snapshot.getItems());
+    assertPublished(previous, snapshot, 2);
+    for (ItemDelta<TestItem> delta : _deltas) {
+      assertTrue(delta.isInPlace());
+    }
+    ItemDiff<TestItem> diff = ItemDiff.diff(previous.getItems(), snapshot.getItems(), TestItem::getId);
+    assertEquals(Collections.singletonList(a3), new ArrayList<>(diff.getChanged()));
+    assertEquals(Collections.singletonList(a), new ArrayList<>(diff.getReplaced()));
+  }
+
+  @Test
+  public void testTooManyDiffsFallBackToFullDiff() {
+    TestItem a = item("a", "0");
+    _itemManager.add(a);
+    ItemSnapshot<TestItem> previous = takeSnapshot();
+
+    TestItem item = a;
+    for (int i = 1; i <= ItemManager.MAX_PUBLISHED_DIFFS + 1; i++) {
+      TestItem next = item("a", Integer.toString(i));
+      _itemManager.change(item, next);
+      item = next;
+    }
+    ItemSnapshot<TestItem> snapshot = takeSnapshot();
+    assertEquals(Collections.singletonList(item), snapshot.getItems());
+    // one delta from the previous snapshot, diffed against the items rather than folded from the published diffs
+    assertEquals(1, _deltas.size());
+    ItemDelta<TestItem> delta = _deltas.get(0);
+    assertEquals(previous.getGeneration(), delta.getFromGeneration());
+    assertEquals(snapshot.getGeneration(), delta.getGeneration());
+    assertFalse(delta.isInPlace());
+    assertEquals(Collections.singletonList(item), new ArrayList<>(delta.getDiff()
+                                                                       .getChanged()));
+    assertEquals(Collections.singletonList(a), new ArrayList<>(delta.getDiff()
+                                                                    .getReplaced()));
+  }
+
+  // the snapshot, with the deltas that led to it cleared
+  private ItemSnapshot<TestItem> takeSnapshot() {
+    _deltas.clear();
+    ItemSnapshot<TestItem> snapshot = _itemManager.getSnapshot();
+    assertEquals(_itemManager.getGeneration(), snapshot.getGeneration());
+    return snapshot;
+  }
+
+  // the published deltas chain one generation at a time from the previous snapshot
+  private void assertPublished(ItemSnapshot<TestItem> previous, ItemSnapshot<TestItem> snapshot, int count) {
+    assertEquals(count, _deltas.size());
+    long generation = previous.getGeneration();
+    for (ItemDelta<TestItem> delta : _deltas) {
+      assertEquals(generation, delta.getFromGeneration());
+      generation = delta.getGeneration();
+    }
+    assertEquals(snapshot.getGeneration(), generation);
+  }
+
+}
@@ -0,0 +1,100 @@
+package vaadin.util.push;
+
+import static org.junit.Assert.assertEquals;
+import static vaadin.util.push.ItemDiffTest.item;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import vaadin.util.test.TestItem;
+
+// the build forks the sort tasks from a size of one in chunks of 64 rows, see the surefire properties in the pom
+public class SortedIndexTest {
+
+  private static final int[] SIZES = { 0, 1, 31, 32, 33, 63, 64, 65, 127, 128, 129, 1000 };
+
+  private final Random _random = new Random(1);
+
+  @Test
+  public void testRowSortMatchesCollectionsSort() {
+    for (int size : SIZES) {
+      // few distinct keys, so most rows tie and only a stable sort keeps them in row order
+      int[] keys = new int[size];
+      for (int row = 0; row < size; row++) {
+        keys[row] = _random.nextInt(4);
+      }
+      List<Integer> expected = IntStream.range(0, size)
+                                        .boxed()
+                                        .collect(Collectors.toList());
+      Collections.sort(expected, Comparator.comparingInt(row -> keys[row]));
+      int[] rows = IntStream.range(0, size)
+                            .toArray();
+      RowSort.sort(rows, (row1, row2) -> Integer.compare(keys[row1], keys[row2]));
+      assertEquals("size " + size, expected, IntStream.of(rows)
+                                                      .boxed()
+                                                      .collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testSortedIndexMatchesCollectionsSort() {
+    Comparator<TestItem> comparator = Comparator.comparing(TestItem::getValue);
+    for (int size : SIZES) {
+      List<TestItem> items = new ArrayList<>();
+      for (int row = 0; row < size; row++) {
+        items.add(item(Integer.toString(row), Integer.toString(_random.nextInt(4))));
+      }
+      ItemSnapshot<TestItem> snapshot = new ItemSnapshot<>(1, items, TestItem::getId);
+      FilteredIndex<TestItem> filteredIndex = FilteredIndex.create(snapshot, item -> !item.getValue()
+                                                                                        .equals("0"));
+      List<TestItem> expected = filteredIndex.stream()
+                                             .collect(Collectors.toList());
+      Collections.sort(expected, comparator);
+
+      SortedIndex<TestItem> sortedIndex = SortedIndex.create(filteredIndex, comparator);
+      assertEquals("size " + size, expected.size(), sortedIndex.size());
+      for (int position = 0; position < expected.size(); position++) {
+        assertEquals("size " + size, expected.get(position), sortedIndex.get(position));
+        assertEquals("size " + size, position, sortedIndex.positionOf(expected.get(position)));
+      }
+      for (TestItem item : items) {
+        if (!filteredIndex.test(item)) {
+          assertEquals(-1, sortedIndex.positionOf(item));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSortedIndexKeepsPermutationOrder() {
+    for (int size : SIZES) {
+      List<Integer> items = IntStream.range(0, size)
+                                     .boxed()
+                                     .collect(Collectors.toList());
+      ItemSnapshot<Integer> snapshot = new ItemSnapshot<>(1, items);
+      FilteredIndex<Integer> filteredIndex = FilteredIndex.create(snapshot, i -> i % 3 != 0);
+      List<Integer> permutation = new ArrayList<>(items);
+      Collections.shuffle(permutation, _random);
+      List<Integer> expected = permutation.stream()
+                                          .filter(i -> i % 3 != 0)
+                                          .collect(Collectors.toList());
+
+      SortedIndex<Integer> sortedIndex = SortedIndex.of(filteredIndex, permutation.stream()
+                                                                                  .mapToInt(Integer::intValue)
+                                                                                  .toArray());
+      assertEquals("size " + size, expected.size(), sortedIndex.size());
+      for (int position = 0; position < expected.size(); position++) {
+        assertEquals(expected.get(position), sortedIndex.get(position));
+        assertEquals(position, sortedIndex.positionOf(expected.get(position)));
+      }
+    }
+  }
+
+}